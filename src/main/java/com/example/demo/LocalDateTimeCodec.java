@@ -0,0 +1,157 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+/**
+ * Reads and writes the API's "HH:mm dd/MM/yyyy" date-times digit by digit instead of going
+ * through a {@link DateTimeFormatter}. Text that is not exactly in that shape (years past
+ * 9999, "24:00", days past the end of the month...) and properties whose @JsonFormat asks
+ * for another pattern are handed to the formatter-based codec, so results never differ.
+ */
+public final class LocalDateTimeCodec {
+
+    public static final String PATTERN = "HH:mm dd/MM/yyyy";
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    static final int LENGTH = PATTERN.length();
+
+    private LocalDateTimeCodec(){
+    }
+
+    /** Writes the date-time into {@code out} and returns true, or returns false if its year has no 4-digit form. */
+    static boolean format(LocalDateTime value, char[] out){
+        int year = value.getYear();
+        // yyyy is the year of era: year 0 is written 0001 (BC)
+        if (year < 1 || year > 9999){
+            return false;
+        }
+        twoDigits(out, 0, value.getHour());
+        out[2] = ':';
+        twoDigits(out, 3, value.getMinute());
+        out[5] = ' ';
+        twoDigits(out, 6, value.getDayOfMonth());
+        out[8] = '/';
+        twoDigits(out, 9, value.getMonthValue());
+        out[11] = '/';
+        twoDigits(out, 12, year / 100);
+        twoDigits(out, 14, year % 100);
+        return true;
+    }
+
+    /** The date-time written in {@code text[offset, offset + length)}, or null if it needs the formatter. */
+    static LocalDateTime parse(char[] text, int offset, int length){
+        if (length != LENGTH || text[offset + 2] != ':' || text[offset + 5] != ' '
+                || text[offset + 8] != '/' || text[offset + 11] != '/'){
+            return null;
+        }
+        int hour = twoDigits(text, offset);
+        int minute = twoDigits(text, offset + 3);
+        int day = twoDigits(text, offset + 6);
+        int month = twoDigits(text, offset + 9);
+        int century = twoDigits(text, offset + 12);
+        int years = twoDigits(text, offset + 14);
+        if ((hour | minute | day | month | century | years) < 0 || century + years == 0){
+            return null;
+        }
+        try {
+            return LocalDateTime.of(century * 100 + years, month, day, hour, minute);
+        } catch (DateTimeException e){
+            return null;
+        }
+    }
+
+    private static void twoDigits(char[] out, int at, int value){
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+
+    /** The two-digit number at {@code at}, or -1 if either char is not a digit. */
+    private static int twoDigits(char[] text, int at){
+        int tens = text[at] - '0';
+        int units = text[at + 1] - '0';
+        if (tens < 0 || tens > 9 || units < 0 || units > 9){
+            return -1;
+        }
+        return tens * 10 + units;
+    }
+
+    /** A @JsonFormat pattern other than ours, if the property carries one. */
+    private static boolean hasOtherPattern(JsonFormat.Value format){
+        return format != null && (format.hasPattern() && !PATTERN.equals(format.getPattern())
+                || format.getShape() != JsonFormat.Shape.ANY && format.getShape() != JsonFormat.Shape.STRING);
+    }
+
+    public static class Serializer extends StdScalarSerializer<LocalDateTime> implements ContextualSerializer {
+
+        public Serializer(){
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            char[] text = new char[LENGTH];
+            if (format(value, text)){
+                generator.writeString(text, 0, LENGTH);
+            } else {
+                generator.writeString(FORMATTER.format(value));
+            }
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+            if (hasOtherPattern(findFormatOverrides(provider, property, handledType()))){
+                return LocalDateTimeSerializer.INSTANCE.createContextual(provider, property);
+            }
+            return this;
+        }
+    }
+
+    public static class Deserializer extends StdScalarDeserializer<LocalDateTime> implements ContextualDeserializer {
+
+        private static final LocalDateTimeDeserializer FALLBACK = new LocalDateTimeDeserializer(FORMATTER);
+
+        public Deserializer(){
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.hasToken(JsonToken.VALUE_STRING)){
+                // The parser's own buffer: no String is made for the value
+                LocalDateTime value = parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if (value != null){
+                    return value;
+                }
+            }
+            return FALLBACK.deserialize(parser, context);
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) throws JsonMappingException {
+            if (hasOtherPattern(findFormatOverrides(context, property, handledType()))){
+                return LocalDateTimeDeserializer.INSTANCE.createContextual(context, property);
+            }
+            return this;
+        }
+    }
+}
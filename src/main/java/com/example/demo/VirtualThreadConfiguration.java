@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code virtual-threads.enabled=true}, the embedded Tomcat runs each request on a
+ * virtual thread of its own instead of its fixed worker pool, so requests blocked on the
+ * database no longer hold a platform thread each; how many of them reach the database at
+ * once is then up to the connection pool. Needs Java 21 or later: on an older JVM the
+ * application refuses to start rather than silently keep the worker pool. A war deployed to an
+ * external container keeps that container's threads. Virtual threads run on one carrier
+ * per core by default; on a small, CPU-bound host a request holding a connection can wait
+ * long for a carrier, and -Djdk.virtualThreadScheduler.parallelism sets more of them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // Looked up at run time, so that the build keeps compiling for Java 17
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("virtual-threads.enabled=true needs Java 21 or later, but this JVM is "
+                    + System.getProperty("java.version") + "; set it to false or run on a newer JVM", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
@@ -1,48 +1,147 @@
 package com.example.demo.controllers;
 
 import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentFilter;
 import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.BulkAppointmentService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ScheduleIndex;
+import com.example.demo.services.SingleFlight;
+import com.example.demo.views.AppointmentView;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 public class AppointmentController {
 
     AppointmentRepository appointmentRepository;
+    ScheduleIndex scheduleIndex;
+    AppointmentBookingService appointmentBookingService;
+    BulkAppointmentService bulkAppointmentService;
+    ObjectMapper objectMapper;
+    ChangeStamps changeStamps;
+    BulkDeleteService bulkDeleteService;
+    Counter rejectedBookings;
+
+    /** Keyed by id and ETag, so a request never shares a load started before the tag it answers with. */
+    private final SingleFlight<Map.Entry<Long, String>, Optional<AppointmentView>> appointmentLoads = new SingleFlight<>();
+
+    /** Appointment responses embed patients, doctors and rooms; writes bump only the collections they changed. */
+    private static final ChangeStamps.Kind[] ALL = ChangeStamps.Kind.values();
+
+    private static final String[] FIELDS = {"patient", "doctor", "room", "startsAt", "finishesAt"};
 
     @Autowired
-    public AppointmentController(AppointmentRepository appointmentRepository){
+    public AppointmentController(AppointmentRepository appointmentRepository, ScheduleIndex scheduleIndex,
+                                 AppointmentBookingService appointmentBookingService,
+                                 BulkAppointmentService bulkAppointmentService, ObjectMapper objectMapper,
+                                 ChangeStamps changeStamps, BulkDeleteService bulkDeleteService,
+                                 MeterRegistry meterRegistry){
         this.appointmentRepository = appointmentRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.appointmentBookingService = appointmentBookingService;
+        this.bulkAppointmentService = bulkAppointmentService;
+        this.objectMapper = objectMapper;
+        this.changeStamps = changeStamps;
+        this.bulkDeleteService = bulkDeleteService;
+        this.rejectedBookings = Counter.builder("appointments.rejected")
+                .description("Appointments answered 406 because the room, doctor or patient was taken")
+                .register(meterRegistry);
     }
 
+    /**
+     * Without criteria, pages through every appointment by id. With any of doctorId,
+     * patientId, room, from and to, returns the matching appointments starting in [from, to),
+     * ordered by startsAt; {@code after} is then the cursor of the previous page's last row.
+     * {@code fields} picks the properties of each appointment to read and send.
+     */
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments(){
-        List<Appointment> appointments = new ArrayList<>();
-
-        appointmentRepository.findAll().forEach(appointments::add);
+    public ResponseEntity<?> getAllAppointments(@RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "doctorId", required = false) Long doctorId,
+            @RequestParam(value = "patientId", required = false) Long patientId,
+            @RequestParam(value = "room", required = false) String room,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime to,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (!Keyset.isValidLimit(limit) || fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ALL);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
 
-        if (appointments.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        AppointmentFilter filter = new AppointmentFilter(doctorId, patientId, room, from, to);
+        if (filter.isEmpty()){
+            long afterId;
+            try {
+                afterId = after == null ? 0 : Long.parseLong(after);
+            } catch (NumberFormatException e){
+                return ResponseEntity.badRequest().build();
+            }
+            List<AppointmentView> appointments = fieldset.isAll()
+                    ? appointmentRepository.findViewsAfter(afterId, Keyset.first(limit))
+                    : appointmentRepository.findViewsAfter(afterId, fieldset.names(), limit);
+            return fieldset.shape(Keyset.page(appointments, limit, AppointmentView::getId), AppointmentView.FILTER);
         }
 
-        return new ResponseEntity<>(appointments, HttpStatus.OK);
+        if (!filter.isValid() || (after != null && !filter.seekAfter(after))){
+            return ResponseEntity.badRequest().build();
+        }
+        List<AppointmentView> appointments = fieldset.isAll()
+                ? appointmentRepository.search(filter, limit)
+                : appointmentRepository.search(filter, fieldset.names(), limit);
+        return fieldset.shape(Keyset.page(appointments, limit, AppointmentFilter::cursorOf), AppointmentView.FILTER);
     }
 
     @GetMapping("/appointments/{id}")
-    public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id){
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
+    public ResponseEntity<?> getAppointmentById(@PathVariable("id") long id,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ALL);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        // Concurrent requests for the same appointment share one load; sparse reads select only their columns
+        Optional<AppointmentView> appointment = fieldset.isAll()
+                ? appointmentLoads.load(Map.entry(id, etag), () -> appointmentRepository.findViewById(id))
+                : appointmentRepository.findViewById(id, fieldset.names());
 
         if (appointment.isPresent()){
-            return new ResponseEntity<>(appointment.get(),HttpStatus.OK);
+            return new ResponseEntity<>(fieldset.shapeOne(appointment.get(), AppointmentView.FILTER),HttpStatus.OK);
         }else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -51,30 +150,52 @@ public class AppointmentController {
     @PostMapping("/appointment")
     public ResponseEntity<List<Appointment>> createAppointment(@RequestBody Appointment appointment){
 
-        // Check if the appointment is valid (startsAt is before finishesAt)
-        if (appointment.getStartsAt().isEqual(appointment.getFinishesAt()))
+        // Check if the appointment is valid (startsAt is before finishesAt, in a known room)
+        if (appointment.getRoom() == null || !appointment.getStartsAt().isBefore(appointment.getFinishesAt()))
             return ResponseEntity.badRequest().build(); // 400 Bad Request
 
-        // Check if the appointment is overlapped with any other appointment
-        ResponseEntity NOT_ACCEPTABLE = checkIsOverlapped(appointment);
+        // Save the appointment unless it is overlapped with any other appointment
+        BookingResult booking = appointmentBookingService.book(appointment);
+        ResponseEntity NOT_ACCEPTABLE = checkIsOverlapped(booking);
         if (NOT_ACCEPTABLE != null) return NOT_ACCEPTABLE; // 406 Not Acceptable
+        changeStamps.bump(booking.getChanged());
 
-        // Save the appointment in the database
-        List<Appointment> appointments = Collections.singletonList(appointmentRepository.save(appointment));
+        List<Appointment> appointments = Collections.singletonList(booking.getAppointment());
 
         // If all OK, return the appointment with the 200 OK status
         return ResponseEntity.status(HttpStatus.OK).body(appointments); // 200 OK
     }
 
-    private ResponseEntity checkIsOverlapped(Appointment appointment) {
-        /*Create one appointment out of two conflict date*/
-        List<Appointment> existingAppointments = appointmentRepository.findAll(); // Get all appointments from the database
+    @PostMapping(value = "/appointments/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createAppointments(@RequestBody List<Appointment> appointments){
+        Set<ChangeStamps.Kind> changed = EnumSet.noneOf(ChangeStamps.Kind.class);
+        List<BulkResult> results = bulkAppointmentService.createAll(appointments, changed);
+        if (!changed.isEmpty()) changeStamps.bump(changed);
+        return ResponseEntity.ok(results);
+    }
 
-        // Check if any of the existing appointments overlaps with the new appointment
-        boolean isOverlapped = existingAppointments.stream().anyMatch(existingAppointment -> existingAppointment.overlaps(appointment));
+    @PostMapping(value = "/appointments/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createAppointments(InputStream body) throws IOException {
+        List<BulkResult> results;
+        Set<ChangeStamps.Kind> changed = EnumSet.noneOf(ChangeStamps.Kind.class);
+
+        // One appointment per line, booked in chunks as the lines arrive
+        try (MappingIterator<Appointment> lines = objectMapper.readerFor(Appointment.class).readValues(body)){
+            results = bulkAppointmentService.createAll(new JsonLines<>(lines), changed);
+        } finally {
+            // Chunks stored before a failing one are kept
+            if (!changed.isEmpty()) changeStamps.bump(changed);
+        }
+        return ResponseEntity.ok(results);
+    }
 
-        if (isOverlapped)
-            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+    private ResponseEntity checkIsOverlapped(BookingResult booking) {
+        /*Create one appointment out of two conflict date*/
+        // Room, doctor and patient are checked together; the body tells which ones are taken
+        if (!booking.isBooked()){
+            rejectedBookings.increment();
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).body(Collections.singletonMap("conflicts", booking.getConflicts()));
+        }
 
         return null;
     }
@@ -83,21 +204,31 @@ public class AppointmentController {
     @DeleteMapping("/appointments/{id}")
     public ResponseEntity<HttpStatus> deleteAppointment(@PathVariable("id") long id){
 
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
-
-        if (!appointment.isPresent()){
+        if (!appointmentBookingService.cancel(id)){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        appointmentRepository.deleteById(id);
+        changeStamps.bump(ChangeStamps.Kind.APPOINTMENTS);
 
         return new ResponseEntity<>(HttpStatus.OK);
         
     }
 
+    /** Deletes every appointment, or with {@code before} only the ones starting earlier. */
     @DeleteMapping("/appointments")
-    public ResponseEntity<HttpStatus> deleteAllAppointments(){
-        appointmentRepository.deleteAll();
+    public ResponseEntity<HttpStatus> deleteAllAppointments(
+            @RequestParam(value = "before", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime before){
+        try {
+            if (before == null){
+                bulkDeleteService.deleteAll(Appointment.class);
+            } else {
+                bulkDeleteService.deleteAppointmentsBefore(before);
+            }
+        } finally {
+            // Chunks deleted before a failing one stay deleted; schedules are reloaded from the database when next asked for
+            scheduleIndex.clear();
+            changeStamps.bump(ChangeStamps.Kind.APPOINTMENTS);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -2,75 +2,189 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Doctor;
-
-import java.util.ArrayList;
+import com.example.demo.views.PersonView;
+import com.example.demo.services.FreeSlot;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.BulkPersonService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ScheduleIndex;
+import com.example.demo.services.SingleFlight;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 public class DoctorController {
 
     @Autowired
     DoctorRepository doctorRepository;
 
-    @GetMapping("/doctors")
-    public ResponseEntity<List<Doctor>> getAllDoctors(){
-        List<Doctor> doctors = new ArrayList<>();
+    @Autowired
+    ScheduleIndex scheduleIndex;
+
+    @Autowired
+    ChangeStamps changeStamps;
+
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    BulkPersonService bulkPersonService;
 
-        doctorRepository.findAll().forEach(doctors::add);
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private static final String[] FIELDS = {"firstName", "lastName", "age", "email"};
+
+    /** Keyed by id and ETag, so a request never shares a load started before the tag it answers with. */
+    private final SingleFlight<Map.Entry<Long, String>, Optional<Doctor>> doctorLoads = new SingleFlight<>();
 
-        if (doctors.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    @GetMapping("/doctors")
+    public ResponseEntity<?> getAllDoctors(@RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (!Keyset.isValidLimit(limit) || fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ChangeStamps.Kind.DOCTORS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
         }
 
-        return new ResponseEntity<>(doctors, HttpStatus.OK);
+        List<PersonView> doctors = fieldset.isAll()
+                ? doctorRepository.findViewsAfter(after, Keyset.first(limit))
+                : doctorRepository.findViewsAfter(after, fieldset.names(), limit);
+
+        return fieldset.shape(Keyset.page(doctors, limit, PersonView::getId), PersonView.FILTER);
     }
 
     @GetMapping("/doctors/{id}")
-    public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
+    public ResponseEntity<?> getDoctorById(@PathVariable("id") long id,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ChangeStamps.Kind.DOCTORS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        // Concurrent requests for the same doctor share one load; sparse reads select only their columns
+        Optional<?> doctor = fieldset.isAll()
+                ? doctorLoads.load(Map.entry(id, etag), () -> doctorRepository.findById(id))
+                : doctorRepository.findViewById(id, fieldset.names());
         if (! doctor.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        return new ResponseEntity<>(doctor.get(),HttpStatus.OK);
+        return new ResponseEntity<>(fieldset.shapeOne(doctor.get(), PersonView.FILTER),HttpStatus.OK);
+    }
+
+    @GetMapping("/doctors/{id}/availability")
+    public ResponseEntity<List<FreeSlot>> getDoctorAvailability(@PathVariable("id") long id,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime to,
+            @RequestParam(value = "duration", defaultValue = "30") int duration,
+            @RequestParam(value = "limit", defaultValue = "10") int limit){
+        LocalDateTime start = from != null ? from : LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime end = to != null ? to : start.plus(ScheduleIndex.DEFAULT_WINDOW);
+
+        if (duration <= 0 || limit <= 0 || limit > ScheduleIndex.MAX_FREE_SLOTS || !start.isBefore(end)){
+            return ResponseEntity.badRequest().build();
+        }
+        if (!doctorRepository.existsById(id)){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        // Free slots come from the doctor's schedule index, no appointment is read
+        List<FreeSlot> slots = scheduleIndex.findFreeSlots(ResourceType.DOCTOR, id, start, end, Duration.ofMinutes(duration), limit);
+        return new ResponseEntity<>(slots, HttpStatus.OK);
     }
 
     @PostMapping("/doctor")
     public ResponseEntity<Doctor> createDoctor(@RequestBody Doctor doc){
-        Doctor d = new Doctor(doc.getFirstName(), doc.getLastName(), doc.getAge(), doc.getEmail());
+        Doctor d = newDoctor(doc);
         doctorRepository.save(d);
+        changeStamps.bump(ChangeStamps.Kind.DOCTORS);
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/doctors/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createDoctors(@RequestBody List<Doctor> doctors){
+        List<BulkResult> results = bulkPersonService.createAll(doctors.iterator(), DoctorController::newDoctor);
+        changeStamps.bump(ChangeStamps.Kind.DOCTORS);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping(value = "/doctors/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createDoctors(InputStream body) throws IOException {
+        List<BulkResult> results;
+
+        // One doctor per line, stored in batches as the lines arrive
+        try (MappingIterator<Doctor> lines = objectMapper.readerFor(Doctor.class).readValues(body)){
+            results = bulkPersonService.createAll(new JsonLines<>(lines), DoctorController::newDoctor);
+        } finally {
+            // Chunks stored before a failing one are kept
+            changeStamps.bump(ChangeStamps.Kind.DOCTORS);
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    /** Copies what the client may set, so that an id in the request body is never stored. */
+    private static Doctor newDoctor(Doctor doc){
+        return new Doctor(doc.getFirstName(), doc.getLastName(), doc.getAge(), doc.getEmail());
+    }
+
     @DeleteMapping("/doctors/{id}")
     public ResponseEntity<HttpStatus> deleteDoctor(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
-
-        if (! doctor.isPresent()){
+        if (doctorRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-
-        doctorRepository.deleteById(id);
+        changeStamps.bump(ChangeStamps.Kind.DOCTORS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/doctors")
     public ResponseEntity<HttpStatus> deleteAllDoctors(){
-        doctorRepository.deleteAll();
+        // Nothing is deleted while appointments refer to doctors, rather than only the chunks before the first such one
+        if (bulkDeleteService.isReferencedByAppointments(Doctor.class)){
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        try {
+            bulkDeleteService.deleteAll(Doctor.class);
+        } finally {
+            changeStamps.bump(ChangeStamps.Kind.DOCTORS);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
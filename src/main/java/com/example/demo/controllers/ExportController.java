@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import com.example.demo.repositories.*;
+import com.example.demo.services.JsonExport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    JsonExport jsonExport;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @GetMapping("/appointments")
+    public ResponseEntity<StreamingResponseBody> exportAppointments(){
+        return export(jsonExport.of(appointmentRepository::streamAllByOrderByIdAsc));
+    }
+
+    @GetMapping("/doctors")
+    public ResponseEntity<StreamingResponseBody> exportDoctors(){
+        return export(jsonExport.of(doctorRepository::streamAllByOrderByIdAsc));
+    }
+
+    @GetMapping("/patients")
+    public ResponseEntity<StreamingResponseBody> exportPatients(){
+        return export(jsonExport.of(patientRepository::streamAllByOrderByIdAsc));
+    }
+
+    @GetMapping("/rooms")
+    public ResponseEntity<StreamingResponseBody> exportRooms(){
+        return export(jsonExport.of(roomRepository::streamAllByOrderByRoomNameAsc));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> export(StreamingResponseBody body){
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
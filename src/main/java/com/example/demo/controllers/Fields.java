@@ -0,0 +1,79 @@
+package com.example.demo.controllers;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Sparse fieldsets: {@code ?fields=startsAt,room} limits each item of a response to the
+ * named top-level properties, plus the id, which is always sent. The repositories read only
+ * the columns behind the fields, and only those are written: the items' {@code @JsonFilter}
+ * is given the names, so the other properties are never serialized. Without the parameter
+ * every property is sent, exactly as before.
+ */
+final class Fields {
+
+    private final Set<String> names;
+
+    private Fields(Set<String> names){
+        this.names = names;
+    }
+
+    /** The fields asked for, or null when the parameter is empty or names a property the resource lacks. */
+    static Fields parse(String param, String id, String... properties){
+        if (param == null){
+            return new Fields(null);
+        }
+        List<String> known = Arrays.asList(properties);
+        Set<String> names = new LinkedHashSet<>();
+        names.add(id);
+        for (String name : param.split(",")){
+            name = name.trim();
+            if (!name.equals(id) && !known.contains(name)){
+                return null;
+            }
+            names.add(name);
+        }
+        return new Fields(names);
+    }
+
+    boolean isAll(){
+        return names == null;
+    }
+
+    Set<String> names(){
+        return names;
+    }
+
+    /**
+     * The response with each item cut down to the fields asked for; status and headers are
+     * kept. {@code filter} is the id of the items' {@code @JsonFilter}; nested objects keep
+     * all their properties.
+     */
+    ResponseEntity<?> shape(ResponseEntity<? extends List<?>> response, String filter){
+        if (isAll() || response.getBody() == null){
+            return response;
+        }
+        return new ResponseEntity<>(filtered(response.getBody(), filter), response.getHeaders(), response.getStatusCode());
+    }
+
+    /** The item cut down to the fields asked for, or the item itself without a fieldset. */
+    Object shapeOne(Object item, String filter){
+        return isAll() ? item : filtered(item, filter);
+    }
+
+    private MappingJacksonValue filtered(Object value, String filter){
+        MappingJacksonValue filtered = new MappingJacksonValue(value);
+        filtered.setFilters(new SimpleFilterProvider()
+                .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll())
+                .addFilter(filter, SimpleBeanPropertyFilter.filterOutAllExcept(names)));
+        return filtered;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The values of an NDJSON request body, read as the bulk services ask for them. A line that
+ * does not parse is handed out as null, which the services report as 400 at its position,
+ * and ends the body: after malformed JSON the parser cannot tell where the next line starts.
+ * The lines before it keep their results.
+ */
+final class JsonLines<T> implements Iterator<T> {
+
+    private final MappingIterator<T> lines;
+    private boolean malformed;
+    private boolean ended;
+
+    JsonLines(MappingIterator<T> lines){
+        this.lines = lines;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if (ended){
+            return false;
+        }
+        if (malformed){
+            return true;
+        }
+        try {
+            ended = !lines.hasNext();
+        } catch (RuntimeException e){
+            malformed = rethrowUnlessMalformed(e);
+        }
+        return !ended;
+    }
+
+    @Override
+    public T next(){
+        if (!hasNext()){
+            throw new NoSuchElementException();
+        }
+        if (!malformed){
+            try {
+                return lines.next();
+            } catch (RuntimeException e){
+                rethrowUnlessMalformed(e);
+            }
+        }
+        ended = true;
+        return null;
+    }
+
+    /** MappingIterator wraps bad values in RuntimeJsonMappingException and bad syntax in a plain RuntimeException. */
+    private static boolean rethrowUnlessMalformed(RuntimeException e){
+        if (e instanceof RuntimeJsonMappingException || e.getCause() instanceof JsonProcessingException){
+            return true;
+        }
+        throw e;
+    }
+}
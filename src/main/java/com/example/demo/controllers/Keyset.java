@@ -0,0 +1,59 @@
+package com.example.demo.controllers;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Keyset pagination of the list endpoints. A page holds the rows whose key comes after the
+ * {@code after} cursor, in key order, so every page is one range scan of the primary key
+ * however deep the client has gone. A full page links to the next one with a
+ * {@code Link: <...?after=key&limit=n>; rel="next"} header that keeps the other query parameters.
+ */
+final class Keyset {
+
+    static final int MAX_LIMIT = 1000;
+
+    private Keyset(){
+    }
+
+    static boolean isValidLimit(int limit){
+        return limit > 0 && limit <= MAX_LIMIT;
+    }
+
+    static Pageable first(int limit){
+        return PageRequest.of(0, limit);
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> items, int limit, Function<T, Object> key){
+        if (items.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (items.size() == limit){
+            UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequestUri();
+            currentRequest().getParameterMap().forEach((name, values) -> {
+                if (!name.equals("after") && !name.equals("limit")) next.queryParam(name, (Object[]) values);
+            });
+            next.queryParam("after", key.apply(items.get(items.size() - 1))).queryParam("limit", limit);
+            headers.add(HttpHeaders.LINK, "<" + next.build().encode().toUriString() + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<>(items, headers, HttpStatus.OK);
+    }
+
+    private static HttpServletRequest currentRequest(){
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+}
@@ -3,12 +3,21 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Patient;
-
-import java.util.ArrayList;
+import com.example.demo.services.BulkPersonService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.views.PersonView;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -17,58 +26,128 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 public class PatientController {
 
     @Autowired
     PatientRepository patientRepository;
 
-    @GetMapping("/patients")
-    public ResponseEntity<List<Patient>> getAllPatients(){
-        List<Patient> patients = new ArrayList<>();
+    @Autowired
+    ChangeStamps changeStamps;
 
-        patientRepository.findAll().forEach(patients::add);
+    @Autowired
+    BulkDeleteService bulkDeleteService;
 
-        if (patients.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    @Autowired
+    BulkPersonService bulkPersonService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private static final String[] FIELDS = {"firstName", "lastName", "age", "email"};
+
+    @GetMapping("/patients")
+    public ResponseEntity<?> getAllPatients(@RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (!Keyset.isValidLimit(limit) || fieldset == null){
+            return ResponseEntity.badRequest().build();
         }
+        String etag = changeStamps.etag(ChangeStamps.Kind.PATIENTS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+
+        List<PersonView> patients = fieldset.isAll()
+                ? patientRepository.findViewsAfter(after, Keyset.first(limit))
+                : patientRepository.findViewsAfter(after, fieldset.names(), limit);
 
-        return new ResponseEntity<>(patients, HttpStatus.OK);
+        return fieldset.shape(Keyset.page(patients, limit, PersonView::getId), PersonView.FILTER);
     }
 
     @GetMapping("/patients/{id}")
-    public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
+    public ResponseEntity<?> getPatientById(@PathVariable("id") long id,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        Fields fieldset = Fields.parse(fields, "id", FIELDS);
+        if (fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ChangeStamps.Kind.PATIENTS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        Optional<?> patient = fieldset.isAll()
+                ? patientRepository.findById(id)
+                : patientRepository.findViewById(id, fieldset.names());
         if (! patient.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(patient.get(),HttpStatus.OK);
+        return new ResponseEntity<>(fieldset.shapeOne(patient.get(), PersonView.FILTER),HttpStatus.OK);
     }
 
     @PostMapping("/patient")
     public ResponseEntity<Patient> createPatient(@RequestBody Patient pat){
-        Patient d = new Patient(pat.getFirstName(), pat.getLastName(), pat.getAge(), pat.getEmail());
+        Patient d = newPatient(pat);
         patientRepository.save(d);
+        changeStamps.bump(ChangeStamps.Kind.PATIENTS);
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/patients/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createPatients(@RequestBody List<Patient> patients){
+        List<BulkResult> results = bulkPersonService.createAll(patients.iterator(), PatientController::newPatient);
+        changeStamps.bump(ChangeStamps.Kind.PATIENTS);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping(value = "/patients/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BulkResult>> createPatients(InputStream body) throws IOException {
+        List<BulkResult> results;
+
+        // One patient per line, stored in batches as the lines arrive
+        try (MappingIterator<Patient> lines = objectMapper.readerFor(Patient.class).readValues(body)){
+            results = bulkPersonService.createAll(new JsonLines<>(lines), PatientController::newPatient);
+        } finally {
+            // Chunks stored before a failing one are kept
+            changeStamps.bump(ChangeStamps.Kind.PATIENTS);
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    /** Copies what the client may set, so that an id in the request body is never stored. */
+    private static Patient newPatient(Patient pat){
+        return new Patient(pat.getFirstName(), pat.getLastName(), pat.getAge(), pat.getEmail());
+    }
+
     @DeleteMapping("/patients/{id}")
     public ResponseEntity<HttpStatus> deletePatient(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
-        if (! patient.isPresent()){
+        if (patientRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        patientRepository.deleteById(id);
+        changeStamps.bump(ChangeStamps.Kind.PATIENTS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/patients")
     public ResponseEntity<HttpStatus> deleteAllPatients(){
-        patientRepository.deleteAll();
+        // Nothing is deleted while appointments refer to patients, rather than only the chunks before the first such one
+        if (bulkDeleteService.isReferencedByAppointments(Patient.class)){
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        try {
+            bulkDeleteService.deleteAll(Patient.class);
+        } finally {
+            changeStamps.bump(ChangeStamps.Kind.PATIENTS);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -3,72 +3,144 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Room;
-
-import java.util.ArrayList;
+import com.example.demo.services.FreeSlot;
+import com.example.demo.services.Occupancy;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ScheduleIndex;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 public class RoomController {
 
     @Autowired
     RoomRepository roomRepository;
 
-    @GetMapping("/rooms")
-    public ResponseEntity<List<Room>> getAllRooms(){
-        List<Room> rooms = new ArrayList<>();
+    @Autowired
+    ScheduleIndex scheduleIndex;
 
-        roomRepository.findAll().forEach(rooms::add);
+    @Autowired
+    ChangeStamps changeStamps;
+
+    @Autowired
+    BulkDeleteService bulkDeleteService;
 
-        if (rooms.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    @GetMapping("/rooms")
+    public ResponseEntity<List<Room>> getAllRooms(@RequestParam(value = "after", defaultValue = "") String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fields", required = false) String fields, WebRequest request){
+        // A room is only its name, so any valid fieldset is the whole room
+        Fields fieldset = Fields.parse(fields, "roomName");
+        if (!Keyset.isValidLimit(limit) || fieldset == null){
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = changeStamps.etag(ChangeStamps.Kind.ROOMS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
         }
 
-        return new ResponseEntity<>(rooms, HttpStatus.OK);
+        List<Room> rooms = roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(after, Keyset.first(limit));
+
+        return Keyset.page(rooms, limit, Room::getRoomName);
     }
 
     @GetMapping("/rooms/{roomName}")
-    public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
+    public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName, WebRequest request){
+        String etag = changeStamps.etag(ChangeStamps.Kind.ROOMS);
+        if (request.checkNotModified(etag)){
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        Optional<Room> room = roomRepository.findById(roomName);
         if (!room.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         return new ResponseEntity<>(room.get(), HttpStatus.OK);
     }
 
+    @GetMapping("/rooms/{roomName}/availability")
+    public ResponseEntity<List<FreeSlot>> getRoomAvailability(@PathVariable("roomName") String roomName,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime to,
+            @RequestParam(value = "duration", defaultValue = "30") int duration,
+            @RequestParam(value = "limit", defaultValue = "10") int limit){
+        LocalDateTime start = from != null ? from : LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime end = to != null ? to : start.plus(ScheduleIndex.DEFAULT_WINDOW);
+
+        if (duration <= 0 || limit <= 0 || limit > ScheduleIndex.MAX_FREE_SLOTS || !start.isBefore(end)){
+            return ResponseEntity.badRequest().build();
+        }
+        if (!roomRepository.findById(roomName).isPresent()){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        // Free slots come from the room's schedule index, no appointment is read
+        List<FreeSlot> slots = scheduleIndex.findFreeSlots(ResourceType.ROOM, roomName, start, end, Duration.ofMinutes(duration), limit);
+        return new ResponseEntity<>(slots, HttpStatus.OK);
+    }
+
+    @GetMapping("/rooms/{roomName}/occupancy")
+    public ResponseEntity<Occupancy> getRoomOccupancy(@PathVariable("roomName") String roomName,
+            @RequestParam(value = "date", required = false) @DateTimeFormat(pattern = "dd/MM/yyyy") LocalDate date){
+        if (!roomRepository.findById(roomName).isPresent()){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        LocalDate day = date != null ? date : LocalDate.now();
+        return new ResponseEntity<>(new Occupancy(day, scheduleIndex.occupiedSlots(roomName, day)), HttpStatus.OK);
+    }
+
     @PostMapping("/room")
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
         Room tmp = new Room(room.getRoomName());
         roomRepository.save(tmp);
+        changeStamps.bump(ChangeStamps.Kind.ROOMS);
         return new ResponseEntity<>(tmp, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/rooms/{roomName}")
     public ResponseEntity<HttpStatus> deleteRoom(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
-        if (! room.isPresent()){
+        if (roomRepository.removeById(roomName) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        roomRepository.deleteByRoomName(roomName);
+        changeStamps.bump(ChangeStamps.Kind.ROOMS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/rooms")
     public ResponseEntity<HttpStatus> deleteAllRooms(){
-        roomRepository.deleteAll();
+        // Nothing is deleted while appointments refer to rooms, rather than only the chunks before the first such one
+        if (bulkDeleteService.isReferencedByAppointments(Room.class)){
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        try {
+            bulkDeleteService.deleteAll(Room.class);
+        } finally {
+            changeStamps.bump(ChangeStamps.Kind.ROOMS);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -9,29 +9,38 @@ import javax.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_appointment_room_time", columnList = "room_id, starts_at, finishes_at"),
+        @Index(name = "idx_appointment_doctor_time", columnList = "doctor_id, starts_at, finishes_at"),
+        @Index(name = "idx_appointment_patient_time", columnList = "patient_id, starts_at, finishes_at"),
+        @Index(name = "idx_appointment_time", columnList = "starts_at")
+})
 public class Appointment {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="appointment_seq")
+    @SequenceGenerator(name="appointment_seq", sequenceName="appointment_seq", allocationSize=50)
     private long id;
 
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinColumn(name = "patient_id", referencedColumnName = "id")
     private Patient patient;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinColumn(name = "doctor_id", referencedColumnName = "id")
     private Doctor doctor;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinColumn(name = "room_id", referencedColumnName = "roomName")
     private Room room;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    @Column(name = "starts_at")
     private LocalDateTime startsAt;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    @Column(name = "finishes_at")
     private LocalDateTime finishesAt;
 
     public Appointment(){
@@ -0,0 +1,34 @@
+package com.example.demo.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/** Version of one collection, shared by every instance of the application. */
+@Entity
+@Table(name = "change_stamps")
+public class ChangeStamp {
+
+    @Id
+    private String kind;
+
+    private long version;
+
+    public ChangeStamp(){
+        super();
+    }
+
+    public ChangeStamp(String kind, long version){
+        super();
+        this.kind = kind;
+        this.version = version;
+    }
+
+    public String getKind(){
+        return this.kind;
+    }
+
+    public long getVersion(){
+        return this.version;
+    }
+}
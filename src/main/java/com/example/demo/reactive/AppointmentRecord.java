@@ -0,0 +1,55 @@
+package com.example.demo.reactive;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/** Row of the appointment table: the patient, doctor and room are only their keys. */
+@Table("appointment")
+public class AppointmentRecord {
+
+    @Id
+    private Long id;
+    private Long patientId;
+    private Long doctorId;
+    private String roomId;
+    private LocalDateTime startsAt;
+    private LocalDateTime finishesAt;
+
+    public AppointmentRecord(){
+    }
+
+    public AppointmentRecord(Long id, Long patientId, Long doctorId, String roomId, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomId = roomId;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public String getRoomId(){
+        return this.roomId;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("doctors")
+public class DoctorRecord extends PersonRecord {
+}
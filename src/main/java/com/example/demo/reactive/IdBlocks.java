@@ -0,0 +1,89 @@
+package com.example.demo.reactive;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out ids from the same sequences, and in the same way, as Hibernate's pooled-lo
+ * optimizer does for the servlet stack: each value read from doctor_seq, patient_seq or
+ * appointment_seq reserves the block [value, value + 50), whoever read it, so ids from
+ * both stacks never collide. On MySQL a sequence is a single-row table and is advanced in
+ * one statement; on H2 it is a real sequence.
+ */
+@Component
+@Profile("reactive")
+public class IdBlocks {
+
+    /** The entities' allocationSize. */
+    static final int BLOCK_SIZE = 50;
+
+    private final ConnectionFactory connectionFactory;
+    private final boolean mysql;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public IdBlocks(ConnectionFactory connectionFactory){
+        this.connectionFactory = connectionFactory;
+        this.mysql = "MySQL".equalsIgnoreCase(connectionFactory.getMetadata().getName());
+    }
+
+    public Mono<Long> next(String sequence){
+        Block block = blocks.get(sequence);
+        long id = block == null ? -1 : block.take();
+        if (id >= 0){
+            return Mono.just(id);
+        }
+        // Concurrent callers may each read a block; every one of them is theirs alone
+        return read(sequence).map(value -> {
+            blocks.put(sequence, new Block(value + 1, value + BLOCK_SIZE));
+            return value;
+        });
+    }
+
+    /**
+     * Reads the sequence on a connection of its own, outside any transaction of the caller,
+     * so that a rolled-back booking cannot hand the same block out twice.
+     */
+    private Mono<Long> read(String sequence){
+        return Mono.usingWhen(connectionFactory.create(), connection -> {
+            if (!mysql){
+                return single(connection.createStatement("select next value for " + sequence));
+            }
+            // LAST_INSERT_ID(expr) is kept per connection for the select that follows
+            return Mono.from(connection.createStatement("update " + sequence
+                            + " set next_val = last_insert_id(next_val + " + BLOCK_SIZE + ")").execute())
+                    .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                    .then(Mono.defer(() -> single(connection.createStatement("select last_insert_id()"))))
+                    .map(next -> next - BLOCK_SIZE);
+        }, Connection::close);
+    }
+
+    private static Mono<Long> single(Statement statement){
+        return Mono.from(statement.execute())
+                .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Long.class))));
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long next, long end){
+            this.next = new AtomicLong(next);
+            this.end = end;
+        }
+
+        /** The next free id of the block, or -1 once it is used up. */
+        long take(){
+            long id = next.getAndIncrement();
+            return id < end ? id : -1;
+        }
+    }
+}
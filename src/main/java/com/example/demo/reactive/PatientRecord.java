@@ -0,0 +1,7 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("patient")
+public class PatientRecord extends PersonRecord {
+}
@@ -0,0 +1,57 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * Row of the doctors or the patient table as R2DBC maps it. It serializes to the same JSON
+ * as the JPA entity.
+ */
+public abstract class PersonRecord {
+
+    @Id
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private int age;
+    private String email;
+
+    public Long getId(){
+        return this.id;
+    }
+
+    public void setId(Long id){
+        this.id = id;
+    }
+
+    public String getFirstName(){
+        return this.firstName;
+    }
+
+    public void setFirstName(String firstName){
+        this.firstName = firstName;
+    }
+
+    public String getLastName(){
+        return this.lastName;
+    }
+
+    public void setLastName(String lastName){
+        this.lastName = lastName;
+    }
+
+    public int getAge(){
+        return this.age;
+    }
+
+    public void setAge(int age){
+        this.age = age;
+    }
+
+    public String getEmail(){
+        return this.email;
+    }
+
+    public void setEmail(String email){
+        this.email = email;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.reactive;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.views.AppointmentView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+public class ReactiveAppointmentController {
+
+    private static final ChangeStamps.Kind[] ALL = ChangeStamps.Kind.values();
+
+    private final ReactiveAppointmentRepository appointmentRepository;
+    private final ReactiveBookingService bookingService;
+    private final ReactiveChangeStamps changeStamps;
+    private final Counter rejectedBookings;
+
+    public ReactiveAppointmentController(ReactiveAppointmentRepository appointmentRepository,
+                                         ReactiveBookingService bookingService, ReactiveChangeStamps changeStamps,
+                                         MeterRegistry meterRegistry){
+        this.appointmentRepository = appointmentRepository;
+        this.bookingService = bookingService;
+        this.changeStamps = changeStamps;
+        this.rejectedBookings = Counter.builder("appointments.rejected")
+                .description("Appointments answered 406 because the room, doctor or patient was taken")
+                .register(meterRegistry);
+    }
+
+    /** Filters and sparse fieldsets of the servlet stack are not served here, so they are refused rather than ignored. */
+    private static final List<String> UNSUPPORTED = Arrays.asList("doctorId", "patientId", "room", "from", "to", "fields");
+
+    @GetMapping("/appointments")
+    public Mono<ResponseEntity<List<AppointmentView>>> getAllAppointments(@RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit, ServerWebExchange exchange){
+        MultiValueMap<String, String> params = exchange.getRequest().getQueryParams();
+        if (!ReactiveKeyset.isValidLimit(limit) || UNSUPPORTED.stream().anyMatch(params::containsKey)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return changeStamps.unlessNotModified(exchange,
+                ReactiveKeyset.page(appointmentRepository.findViewsAfter(after, limit), limit, AppointmentView::getId, exchange.getRequest()), ALL);
+    }
+
+    /** Every appointment after {@code after}, one JSON object per line, read only as fast as the client takes them. */
+    @GetMapping(value = "/appointments", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AppointmentView> streamAppointments(@RequestParam(value = "after", defaultValue = "0") long after){
+        return appointmentRepository.findViewsAfter(after);
+    }
+
+    @GetMapping("/appointments/{id}")
+    public Mono<ResponseEntity<AppointmentView>> getAppointmentById(@PathVariable("id") long id, ServerWebExchange exchange){
+        return changeStamps.unlessNotModified(exchange, appointmentRepository.findViewById(id)
+                .map(appointment -> new ResponseEntity<>(appointment, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND)), ALL);
+    }
+
+    @PostMapping("/appointment")
+    public Mono<ResponseEntity<Object>> createAppointment(@RequestBody Appointment appointment){
+
+        // Check if the appointment is valid (startsAt is before finishesAt, in a known room)
+        if (appointment.getRoom() == null || !appointment.getStartsAt().isBefore(appointment.getFinishesAt())){
+            return Mono.just(ResponseEntity.badRequest().build()); // 400 Bad Request
+        }
+
+        return bookingService.book(appointment).flatMap(booking -> {
+            if (!booking.isBooked()){
+                rejectedBookings.increment();
+                // Room, doctor and patient are checked together; the body tells which ones are taken
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE)
+                        .body(Collections.singletonMap("conflicts", booking.getConflicts())));
+            }
+            return changeStamps.bump(booking.getChanged().toArray(new ChangeStamps.Kind[0])).then(appointmentRepository.findViewById(booking.getId())
+                    .map(stored -> ResponseEntity.ok(Collections.singletonList(stored))));
+        });
+    }
+
+    @DeleteMapping("/appointments/{id}")
+    public Mono<ResponseEntity<HttpStatus>> deleteAppointment(@PathVariable("id") long id){
+        return appointmentRepository.removeById(id).flatMap(deleted -> deleted == 0
+                ? Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NOT_FOUND))
+                : changeStamps.bump(ChangeStamps.Kind.APPOINTMENTS).thenReturn(new ResponseEntity<HttpStatus>(HttpStatus.OK)));
+    }
+
+    /** Deletes every appointment, or with {@code before} only the ones starting earlier. */
+    @DeleteMapping("/appointments")
+    public Mono<ResponseEntity<HttpStatus>> deleteAllAppointments(
+            @RequestParam(value = "before", required = false) @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime before){
+        Mono<?> delete = before == null ? appointmentRepository.deleteAll() : appointmentRepository.removeStartingBefore(before);
+        return delete.then(changeStamps.bump(ChangeStamps.Kind.APPOINTMENTS)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.reactive;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAppointmentRepository extends R2dbcRepository<AppointmentRecord, Long>, ReactiveAppointmentViews {
+
+    /**
+     * Bookings overlapping [startsAt, finishesAt) that share the room, the doctor or the patient.
+     * Each branch is served by its (resource, starts_at, finishes_at) index; a null key matches nothing.
+     */
+    @Query("select * from appointment where starts_at < :finishesAt and finishes_at > :startsAt"
+            + " and (room_id = :roomName or doctor_id = :doctorId or patient_id = :patientId)")
+    Flux<AppointmentRecord> findOverlapping(@Param("roomName") String roomName, @Param("doctorId") Long doctorId,
+                                            @Param("patientId") Long patientId, @Param("startsAt") LocalDateTime startsAt,
+                                            @Param("finishesAt") LocalDateTime finishesAt);
+
+    /** Deletes the appointment in one statement; returns 0 when there was none. */
+    @Modifying
+    @Query("delete from appointment where id = :id")
+    Mono<Integer> removeById(@Param("id") long id);
+
+    @Modifying
+    @Query("delete from appointment where starts_at < :before")
+    Mono<Integer> removeStartingBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,17 @@
+package com.example.demo.reactive;
+
+import com.example.demo.views.AppointmentView;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAppointmentViews {
+
+    /** The page of appointments after the given id, in id order, with their patient, doctor and room. */
+    Flux<AppointmentView> findViewsAfter(long after, int limit);
+
+    /** Every appointment after the given id, in id order, read as fast as the subscriber asks. */
+    Flux<AppointmentView> findViewsAfter(long after);
+
+    Mono<AppointmentView> findViewById(long id);
+}
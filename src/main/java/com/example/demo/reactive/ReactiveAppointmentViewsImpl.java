@@ -0,0 +1,64 @@
+package com.example.demo.reactive;
+
+import java.time.LocalDateTime;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import com.example.demo.views.AppointmentView;
+
+import io.r2dbc.spi.Row;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads appointments with their patient, doctor and room in one joined select, as
+ * {@link com.example.demo.repositories.AppointmentRepository} does for the servlet stack.
+ * The room name is the foreign key, so the room table is not joined.
+ */
+class ReactiveAppointmentViewsImpl implements ReactiveAppointmentViews {
+
+    private static final String VIEW = "select a.id, a.starts_at, a.finishes_at, a.room_id,"
+            + " p.id as p_id, p.first_name as p_first_name, p.last_name as p_last_name, p.age as p_age, p.email as p_email,"
+            + " d.id as d_id, d.first_name as d_first_name, d.last_name as d_last_name, d.age as d_age, d.email as d_email"
+            + " from appointment a left join patient p on p.id = a.patient_id left join doctors d on d.id = a.doctor_id";
+
+    private final DatabaseClient databaseClient;
+
+    ReactiveAppointmentViewsImpl(DatabaseClient databaseClient){
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<AppointmentView> findViewsAfter(long after, int limit){
+        return databaseClient.sql(VIEW + " where a.id > :after order by a.id limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveAppointmentViewsImpl::view)
+                .all();
+    }
+
+    @Override
+    public Flux<AppointmentView> findViewsAfter(long after){
+        return databaseClient.sql(VIEW + " where a.id > :after order by a.id")
+                .bind("after", after)
+                .map(ReactiveAppointmentViewsImpl::view)
+                .all();
+    }
+
+    @Override
+    public Mono<AppointmentView> findViewById(long id){
+        return databaseClient.sql(VIEW + " where a.id = :id")
+                .bind("id", id)
+                .map(ReactiveAppointmentViewsImpl::view)
+                .one();
+    }
+
+    private static AppointmentView view(Row row){
+        return new AppointmentView(row.get("id", Long.class),
+                row.get("p_id", Long.class), row.get("p_first_name", String.class), row.get("p_last_name", String.class),
+                row.get("p_age", Integer.class), row.get("p_email", String.class),
+                row.get("d_id", Long.class), row.get("d_first_name", String.class), row.get("d_last_name", String.class),
+                row.get("d_age", Integer.class), row.get("d_email", String.class),
+                row.get("room_id", String.class), row.get("starts_at", LocalDateTime.class), row.get("finishes_at", LocalDateTime.class));
+    }
+}
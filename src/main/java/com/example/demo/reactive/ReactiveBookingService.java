@@ -0,0 +1,139 @@
+package com.example.demo.reactive;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Person;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ResourceType;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Books a single appointment without blocking. The rows of the room and of a stored doctor
+ * and patient are locked for the length of the booking transaction, always in that order,
+ * so bookings sharing any of them queue up in the database instead of behind in-process
+ * locks as on the servlet stack. New doctors and patients cannot be booked by anyone else
+ * before the transaction commits.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveBookingService {
+
+    /**
+     * Either the id of the stored appointment and the collections its booking wrote to, or the
+     * resources that were already taken.
+     */
+    public static final class Booking {
+        private final Long id;
+        private final Set<ResourceType> conflicts;
+        private final Set<ChangeStamps.Kind> changed;
+
+        private Booking(Long id, Set<ResourceType> conflicts, Set<ChangeStamps.Kind> changed){
+            this.id = id;
+            this.conflicts = conflicts;
+            this.changed = changed;
+        }
+
+        public boolean isBooked(){
+            return this.conflicts.isEmpty();
+        }
+
+        public Long getId(){
+            return this.id;
+        }
+
+        public Set<ResourceType> getConflicts(){
+            return this.conflicts;
+        }
+
+        public Set<ChangeStamps.Kind> getChanged(){
+            return this.changed;
+        }
+    }
+
+    private final ReactiveAppointmentRepository appointmentRepository;
+    private final ReactiveRoomRepository roomRepository;
+    private final ReactiveDoctorRepository doctorRepository;
+    private final ReactivePatientRepository patientRepository;
+    private final R2dbcEntityTemplate template;
+    private final IdBlocks idBlocks;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveBookingService(ReactiveAppointmentRepository appointmentRepository, ReactiveRoomRepository roomRepository,
+                                  ReactiveDoctorRepository doctorRepository, ReactivePatientRepository patientRepository,
+                                  R2dbcEntityTemplate template, IdBlocks idBlocks, ReactiveTransactionManager transactionManager){
+        this.appointmentRepository = appointmentRepository;
+        this.roomRepository = roomRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.template = template;
+        this.idBlocks = idBlocks;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    /** The appointment's room must be set. Stored doctors and patients are referenced, new ones are created along. */
+    public Mono<Booking> book(Appointment appointment){
+        String roomName = (String) ResourceType.ROOM.keyOf(appointment);
+        Long doctorId = (Long) ResourceType.DOCTOR.keyOf(appointment);
+        Long patientId = (Long) ResourceType.PATIENT.keyOf(appointment);
+        Set<ChangeStamps.Kind> changed = EnumSet.of(ChangeStamps.Kind.APPOINTMENTS);
+        if (doctorId == null && appointment.getDoctor() != null) changed.add(ChangeStamps.Kind.DOCTORS);
+        if (patientId == null && appointment.getPatient() != null) changed.add(ChangeStamps.Kind.PATIENTS);
+
+        Mono<Booking> booking = roomRepository.findLockedByRoomName(roomName)
+                .switchIfEmpty(Mono.defer(() -> {
+                    changed.add(ChangeStamps.Kind.ROOMS);
+                    return template.insert(new RoomRecord(roomName));
+                }))
+                .then(doctorId != null ? doctorRepository.findLockedById(doctorId) : Mono.empty())
+                .then(patientId != null ? patientRepository.findLockedById(patientId) : Mono.empty())
+                .thenMany(appointmentRepository.findOverlapping(roomName, doctorId, patientId,
+                        appointment.getStartsAt(), appointment.getFinishesAt()))
+                .reduce(EnumSet.noneOf(ResourceType.class), (conflicts, other) -> {
+                    if (roomName.equals(other.getRoomId())) conflicts.add(ResourceType.ROOM);
+                    if (doctorId != null && doctorId.equals(other.getDoctorId())) conflicts.add(ResourceType.DOCTOR);
+                    if (patientId != null && patientId.equals(other.getPatientId())) conflicts.add(ResourceType.PATIENT);
+                    return conflicts;
+                })
+                .flatMap(conflicts -> {
+                    if (!conflicts.isEmpty()){
+                        return Mono.just(new Booking(null, conflicts, Collections.emptySet()));
+                    }
+                    // One statement at a time: they all run on the transaction's connection
+                    Mono<Optional<Long>> doctor = doctorId != null ? Mono.just(Optional.of(doctorId))
+                            : insert(new DoctorRecord(), appointment.getDoctor(), "doctor_seq");
+                    Mono<Optional<Long>> patient = patientId != null ? Mono.just(Optional.of(patientId))
+                            : insert(new PatientRecord(), appointment.getPatient(), "patient_seq");
+                    return doctor.flatMap(storedDoctor -> patient.flatMap(storedPatient -> idBlocks.next("appointment_seq")
+                            .flatMap(id -> template.insert(new AppointmentRecord(id, storedPatient.orElse(null),
+                                    storedDoctor.orElse(null), roomName, appointment.getStartsAt(), appointment.getFinishesAt())))))
+                            .map(stored -> new Booking(stored.getId(), EnumSet.noneOf(ResourceType.class), changed));
+                });
+        return transactionalOperator.transactional(booking);
+    }
+
+    /** Stores a new doctor or patient copied from the request and returns its id; none without one. */
+    private <T extends PersonRecord> Mono<Optional<Long>> insert(T record, Person person, String sequence){
+        if (person == null){
+            return Mono.just(Optional.empty());
+        }
+        record.setFirstName(person.getFirstName());
+        record.setLastName(person.getLastName());
+        record.setAge(person.getAge());
+        record.setEmail(person.getEmail());
+        return idBlocks.next(sequence).flatMap(id -> {
+            record.setId(id);
+            return template.insert(record);
+        }).map(stored -> Optional.of(stored.getId()));
+    }
+}
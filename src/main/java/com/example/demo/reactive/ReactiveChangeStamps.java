@@ -0,0 +1,82 @@
+package com.example.demo.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.services.ChangeStamps;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The change_stamps counters of {@link ChangeStamps}, read and bumped over R2DBC, so that
+ * both stacks and every instance hand out the same tags.
+ */
+@Component
+@DependsOnDatabaseInitialization
+@Profile("reactive")
+public class ReactiveChangeStamps {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveChangeStamps(DatabaseClient databaseClient){
+        this.databaseClient = databaseClient;
+    }
+
+    /** Creates the missing rows at startup, before any request is served. */
+    @PostConstruct
+    void seed(){
+        databaseClient.sql("select kind from change_stamps")
+                .map((row, metadata) -> row.get("kind", String.class))
+                .all().collectList()
+                .flatMapMany(stored -> Flux.fromArray(ChangeStamps.Kind.values())
+                        .filter(kind -> !stored.contains(kind.name()))
+                        .concatMap(kind -> databaseClient.sql("insert into change_stamps (kind, version) values (:kind, :version)")
+                                .bind("kind", kind.name())
+                                .bind("version", ChangeStamps.initialVersion())
+                                .fetch().rowsUpdated()
+                                // Written meanwhile by an instance starting at the same time
+                                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty())))
+                .then().block();
+    }
+
+    public Mono<Void> bump(ChangeStamps.Kind... kinds){
+        List<String> names = new ArrayList<>(kinds.length);
+        for (ChangeStamps.Kind kind : kinds){
+            names.add(kind.name());
+        }
+        return databaseClient.sql("update change_stamps set version = version + 1 where kind in (:kinds)")
+                .bind("kinds", names)
+                .fetch().rowsUpdated().then();
+    }
+
+    public Mono<String> etag(ChangeStamps.Kind... kinds){
+        return databaseClient.sql("select kind, version from change_stamps")
+                .map((row, metadata) -> Map.entry(row.get("kind", String.class), row.get("version", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(versions -> ChangeStamps.etag(versions, kinds));
+    }
+
+    /**
+     * The response, or 304 without subscribing to it when the client's If-None-Match holds the
+     * current tag of the collections; the tag is set on the response either way.
+     */
+    public <T> Mono<ResponseEntity<T>> unlessNotModified(ServerWebExchange exchange, Mono<ResponseEntity<T>> response, ChangeStamps.Kind... kinds){
+        return etag(kinds).flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.just(new ResponseEntity<T>(HttpStatus.NOT_MODIFIED))
+                : response);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.reactive;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * The "reactive" profile: the /api endpoints of this package on WebFlux and R2DBC, in place
+ * of the servlet controllers and JPA. Netty is chosen explicitly, as Boot would otherwise
+ * prefer the Tomcat on the classpath.
+ */
+@Configuration
+@Profile("reactive")
+@EnableR2dbcRepositories
+public class ReactiveConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory reactiveWebServerFactory(){
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /** The lists come as a JSON page or as an NDJSON stream from the same URL, so caches must key them on Accept too. */
+    @Bean
+    public WebFilter varyOnAccept(){
+        return (exchange, chain) -> {
+            if (exchange.getRequest().getPath().value().startsWith("/api/")){
+                exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+            return chain.filter(exchange);
+        };
+    }
+}
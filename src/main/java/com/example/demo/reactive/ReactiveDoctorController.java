@@ -0,0 +1,84 @@
+package com.example.demo.reactive;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.services.ChangeStamps;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+public class ReactiveDoctorController {
+
+    private final ReactiveDoctorRepository doctorRepository;
+    private final R2dbcEntityTemplate template;
+    private final IdBlocks idBlocks;
+    private final ReactiveChangeStamps changeStamps;
+
+    public ReactiveDoctorController(ReactiveDoctorRepository doctorRepository, R2dbcEntityTemplate template,
+                                    IdBlocks idBlocks, ReactiveChangeStamps changeStamps){
+        this.doctorRepository = doctorRepository;
+        this.template = template;
+        this.idBlocks = idBlocks;
+        this.changeStamps = changeStamps;
+    }
+
+    @GetMapping("/doctors")
+    public Mono<ResponseEntity<List<DoctorRecord>>> getAllDoctors(@RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit, ServerWebExchange exchange){
+        if (!ReactiveKeyset.isValidLimit(limit)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return changeStamps.unlessNotModified(exchange,
+                ReactiveKeyset.page(doctorRepository.findByIdGreaterThanOrderByIdAsc(after, ReactiveKeyset.first(limit)),
+                        limit, DoctorRecord::getId, exchange.getRequest()), ChangeStamps.Kind.DOCTORS);
+    }
+
+    /** Every doctor after {@code after}, one JSON object per line, read only as fast as the client takes them. */
+    @GetMapping(value = "/doctors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DoctorRecord> streamDoctors(@RequestParam(value = "after", defaultValue = "0") long after){
+        return doctorRepository.findByIdGreaterThanOrderByIdAsc(after);
+    }
+
+    @GetMapping("/doctors/{id}")
+    public Mono<ResponseEntity<DoctorRecord>> getDoctorById(@PathVariable("id") long id, ServerWebExchange exchange){
+        return changeStamps.unlessNotModified(exchange, doctorRepository.findById(id)
+                .map(doctor -> new ResponseEntity<>(doctor, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND)), ChangeStamps.Kind.DOCTORS);
+    }
+
+    @PostMapping("/doctor")
+    public Mono<ResponseEntity<DoctorRecord>> createDoctor(@RequestBody DoctorRecord doc){
+        // An id in the request body is never stored
+        return idBlocks.next("doctor_seq")
+                .flatMap(id -> {
+                    doc.setId(id);
+                    return template.insert(doc);
+                })
+                .flatMap(stored -> changeStamps.bump(ChangeStamps.Kind.DOCTORS).thenReturn(new ResponseEntity<>(stored, HttpStatus.CREATED)));
+    }
+
+    @DeleteMapping("/doctors/{id}")
+    public Mono<ResponseEntity<HttpStatus>> deleteDoctor(@PathVariable("id") long id){
+        return doctorRepository.removeById(id).flatMap(deleted -> deleted == 0
+                ? Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NOT_FOUND))
+                : changeStamps.bump(ChangeStamps.Kind.DOCTORS).thenReturn(new ResponseEntity<HttpStatus>(HttpStatus.OK)));
+    }
+
+    @DeleteMapping("/doctors")
+    public Mono<ResponseEntity<HttpStatus>> deleteAllDoctors(){
+        return doctorRepository.deleteAll()
+                .then(changeStamps.bump(ChangeStamps.Kind.DOCTORS))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveDoctorRepository extends R2dbcRepository<DoctorRecord, Long> {
+
+    /** The page of doctors after the given id, in id order. */
+    Flux<DoctorRecord> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /** Every doctor after the given id, in id order, read as fast as the subscriber asks. */
+    Flux<DoctorRecord> findByIdGreaterThanOrderByIdAsc(long id);
+
+    /** Reads the doctor with SELECT ... FOR UPDATE, so that concurrent bookings of them queue up. */
+    @Query("select * from doctors where id = :id for update")
+    Mono<DoctorRecord> findLockedById(@Param("id") long id);
+
+    /** Deletes the doctor in one statement; returns 0 when there was none. */
+    @Modifying
+    @Query("delete from doctors where id = :id")
+    Mono<Integer> removeById(@Param("id") long id);
+}
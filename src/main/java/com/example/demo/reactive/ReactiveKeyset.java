@@ -0,0 +1,54 @@
+package com.example.demo.reactive;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keyset pagination of the reactive list endpoints, with the same parameters, limits and
+ * {@code Link: <...?after=key&limit=n>; rel="next"} header as on the servlet stack.
+ */
+final class ReactiveKeyset {
+
+    static final int MAX_LIMIT = 1000;
+
+    private ReactiveKeyset(){
+    }
+
+    static boolean isValidLimit(int limit){
+        return limit > 0 && limit <= MAX_LIMIT;
+    }
+
+    static Pageable first(int limit){
+        return PageRequest.of(0, limit);
+    }
+
+    static <T> Mono<ResponseEntity<List<T>>> page(Flux<T> items, int limit, Function<T, Object> key, ServerHttpRequest request){
+        return items.collectList().map(page -> {
+            if (page.isEmpty()){
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            if (page.size() == limit){
+                UriComponentsBuilder next = UriComponentsBuilder.fromUri(request.getURI()).replaceQuery(null);
+                request.getQueryParams().forEach((name, values) -> {
+                    if (!name.equals("after") && !name.equals("limit")) next.queryParam(name, values.toArray());
+                });
+                next.queryParam("after", key.apply(page.get(page.size() - 1))).queryParam("limit", limit);
+                headers.add(HttpHeaders.LINK, "<" + next.build().encode().toUriString() + ">; rel=\"next\"");
+            }
+            return new ResponseEntity<>(page, headers, HttpStatus.OK);
+        });
+    }
+}
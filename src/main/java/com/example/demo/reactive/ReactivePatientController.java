@@ -0,0 +1,84 @@
+package com.example.demo.reactive;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.services.ChangeStamps;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+public class ReactivePatientController {
+
+    private final ReactivePatientRepository patientRepository;
+    private final R2dbcEntityTemplate template;
+    private final IdBlocks idBlocks;
+    private final ReactiveChangeStamps changeStamps;
+
+    public ReactivePatientController(ReactivePatientRepository patientRepository, R2dbcEntityTemplate template,
+                                    IdBlocks idBlocks, ReactiveChangeStamps changeStamps){
+        this.patientRepository = patientRepository;
+        this.template = template;
+        this.idBlocks = idBlocks;
+        this.changeStamps = changeStamps;
+    }
+
+    @GetMapping("/patients")
+    public Mono<ResponseEntity<List<PatientRecord>>> getAllPatients(@RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit, ServerWebExchange exchange){
+        if (!ReactiveKeyset.isValidLimit(limit)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return changeStamps.unlessNotModified(exchange,
+                ReactiveKeyset.page(patientRepository.findByIdGreaterThanOrderByIdAsc(after, ReactiveKeyset.first(limit)),
+                        limit, PatientRecord::getId, exchange.getRequest()), ChangeStamps.Kind.PATIENTS);
+    }
+
+    /** Every patient after {@code after}, one JSON object per line, read only as fast as the client takes them. */
+    @GetMapping(value = "/patients", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PatientRecord> streamPatients(@RequestParam(value = "after", defaultValue = "0") long after){
+        return patientRepository.findByIdGreaterThanOrderByIdAsc(after);
+    }
+
+    @GetMapping("/patients/{id}")
+    public Mono<ResponseEntity<PatientRecord>> getPatientById(@PathVariable("id") long id, ServerWebExchange exchange){
+        return changeStamps.unlessNotModified(exchange, patientRepository.findById(id)
+                .map(patient -> new ResponseEntity<>(patient, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND)), ChangeStamps.Kind.PATIENTS);
+    }
+
+    @PostMapping("/patient")
+    public Mono<ResponseEntity<PatientRecord>> createPatient(@RequestBody PatientRecord doc){
+        // An id in the request body is never stored
+        return idBlocks.next("patient_seq")
+                .flatMap(id -> {
+                    doc.setId(id);
+                    return template.insert(doc);
+                })
+                .flatMap(stored -> changeStamps.bump(ChangeStamps.Kind.PATIENTS).thenReturn(new ResponseEntity<>(stored, HttpStatus.CREATED)));
+    }
+
+    @DeleteMapping("/patients/{id}")
+    public Mono<ResponseEntity<HttpStatus>> deletePatient(@PathVariable("id") long id){
+        return patientRepository.removeById(id).flatMap(deleted -> deleted == 0
+                ? Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NOT_FOUND))
+                : changeStamps.bump(ChangeStamps.Kind.PATIENTS).thenReturn(new ResponseEntity<HttpStatus>(HttpStatus.OK)));
+    }
+
+    @DeleteMapping("/patients")
+    public Mono<ResponseEntity<HttpStatus>> deleteAllPatients(){
+        return patientRepository.deleteAll()
+                .then(changeStamps.bump(ChangeStamps.Kind.PATIENTS))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactivePatientRepository extends R2dbcRepository<PatientRecord, Long> {
+
+    /** The page of patients after the given id, in id order. */
+    Flux<PatientRecord> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /** Every patient after the given id, in id order, read as fast as the subscriber asks. */
+    Flux<PatientRecord> findByIdGreaterThanOrderByIdAsc(long id);
+
+    /** Reads the patient with SELECT ... FOR UPDATE, so that concurrent bookings of them queue up. */
+    @Query("select * from patient where id = :id for update")
+    Mono<PatientRecord> findLockedById(@Param("id") long id);
+
+    /** Deletes the patient in one statement; returns 0 when there was none. */
+    @Modifying
+    @Query("delete from patient where id = :id")
+    Mono<Integer> removeById(@Param("id") long id);
+}
@@ -0,0 +1,76 @@
+package com.example.demo.reactive;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.demo.services.ChangeStamps;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+public class ReactiveRoomController {
+
+    private final ReactiveRoomRepository roomRepository;
+    private final R2dbcEntityTemplate template;
+    private final ReactiveChangeStamps changeStamps;
+
+    public ReactiveRoomController(ReactiveRoomRepository roomRepository, R2dbcEntityTemplate template, ReactiveChangeStamps changeStamps){
+        this.roomRepository = roomRepository;
+        this.template = template;
+        this.changeStamps = changeStamps;
+    }
+
+    @GetMapping("/rooms")
+    public Mono<ResponseEntity<List<RoomRecord>>> getAllRooms(@RequestParam(value = "after", defaultValue = "") String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit, ServerWebExchange exchange){
+        if (!ReactiveKeyset.isValidLimit(limit)){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return changeStamps.unlessNotModified(exchange,
+                ReactiveKeyset.page(roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(after, ReactiveKeyset.first(limit)),
+                        limit, RoomRecord::getRoomName, exchange.getRequest()), ChangeStamps.Kind.ROOMS);
+    }
+
+    /** Every room after {@code after}, one JSON object per line, read only as fast as the client takes them. */
+    @GetMapping(value = "/rooms", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RoomRecord> streamRooms(@RequestParam(value = "after", defaultValue = "") String after){
+        return roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(after);
+    }
+
+    @GetMapping("/rooms/{roomName}")
+    public Mono<ResponseEntity<RoomRecord>> getRoomByRoomName(@PathVariable("roomName") String roomName, ServerWebExchange exchange){
+        return changeStamps.unlessNotModified(exchange, roomRepository.findById(roomName)
+                .map(room -> new ResponseEntity<>(room, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND)), ChangeStamps.Kind.ROOMS);
+    }
+
+    @PostMapping("/room")
+    public Mono<ResponseEntity<RoomRecord>> createRoom(@RequestBody RoomRecord room){
+        return template.insert(new RoomRecord(room.getRoomName()))
+                .flatMap(stored -> changeStamps.bump(ChangeStamps.Kind.ROOMS).thenReturn(new ResponseEntity<>(stored, HttpStatus.CREATED)));
+    }
+
+    @DeleteMapping("/rooms/{roomName}")
+    public Mono<ResponseEntity<HttpStatus>> deleteRoom(@PathVariable("roomName") String roomName){
+        return roomRepository.removeByRoomName(roomName).flatMap(deleted -> deleted == 0
+                ? Mono.just(new ResponseEntity<HttpStatus>(HttpStatus.NOT_FOUND))
+                : changeStamps.bump(ChangeStamps.Kind.ROOMS).thenReturn(new ResponseEntity<HttpStatus>(HttpStatus.OK)));
+    }
+
+    @DeleteMapping("/rooms")
+    public Mono<ResponseEntity<HttpStatus>> deleteAllRooms(){
+        return roomRepository.deleteAll()
+                .then(changeStamps.bump(ChangeStamps.Kind.ROOMS))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveRoomRepository extends R2dbcRepository<RoomRecord, String> {
+
+    /** The page of rooms after the given name, in name order. */
+    Flux<RoomRecord> findByRoomNameGreaterThanOrderByRoomNameAsc(String roomName, Pageable pageable);
+
+    /** Every room after the given name, in name order, read as fast as the subscriber asks. */
+    Flux<RoomRecord> findByRoomNameGreaterThanOrderByRoomNameAsc(String roomName);
+
+    /** Reads the room with SELECT ... FOR UPDATE, so that concurrent bookings of it queue up. */
+    @Query("select * from room where room_name = :roomName for update")
+    Mono<RoomRecord> findLockedByRoomName(@Param("roomName") String roomName);
+
+    /** Deletes the room in one statement; returns 0 when there was none. */
+    @Modifying
+    @Query("delete from room where room_name = :roomName")
+    Mono<Integer> removeByRoomName(@Param("roomName") String roomName);
+}
@@ -0,0 +1,26 @@
+package com.example.demo.reactive;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("room")
+public class RoomRecord {
+
+    @Id
+    private String roomName;
+
+    public RoomRecord(){
+    }
+
+    public RoomRecord(String roomName){
+        this.roomName = roomName;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public void setRoomName(String roomName){
+        this.roomName = roomName;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.example.demo.views.AppointmentView;
+
+/**
+ * Criteria of an appointment search: any of doctor, patient and room, and a window on the
+ * start time. Results are ordered by (startsAt, id), and a page resumes after the cursor
+ * of the last row of the previous one.
+ */
+public class AppointmentFilter {
+
+    private final Long doctorId;
+    private final Long patientId;
+    private final String roomName;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private LocalDateTime afterStartsAt;
+    private long afterId;
+
+    public AppointmentFilter(Long doctorId, Long patientId, String roomName, LocalDateTime from, LocalDateTime to){
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.roomName = roomName;
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean isEmpty(){
+        return doctorId == null && patientId == null && roomName == null && from == null && to == null;
+    }
+
+    public boolean isValid(){
+        return from == null || to == null || from.isBefore(to);
+    }
+
+    /** Resumes after the given cursor; false when it is not one this class produced. */
+    public boolean seekAfter(String cursor){
+        int separator = cursor.indexOf('_');
+        if (separator < 0){
+            return false;
+        }
+        try {
+            afterStartsAt = LocalDateTime.ofEpochSecond(Long.parseLong(cursor.substring(0, separator)), 0, ZoneOffset.UTC);
+            afterId = Long.parseLong(cursor.substring(separator + 1));
+        } catch (RuntimeException e){
+            return false;
+        }
+        return true;
+    }
+
+    public static String cursorOf(AppointmentView appointment){
+        return appointment.getStartsAt().toEpochSecond(ZoneOffset.UTC) + "_" + appointment.getId();
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getFrom(){
+        return this.from;
+    }
+
+    public LocalDateTime getTo(){
+        return this.to;
+    }
+
+    public LocalDateTime getAfterStartsAt(){
+        return this.afterStartsAt;
+    }
+
+    public long getAfterId(){
+        return this.afterId;
+    }
+}
@@ -1,14 +1,120 @@
-
 package com.example.demo.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.example.demo.entities.Appointment;
+import com.example.demo.views.AppointmentView;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentSearch {
     List<Appointment> findAll();
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+
+    /** Columns of an {@link AppointmentView}: the appointment with its patient, doctor and room in one row. */
+    String VIEW = "select new com.example.demo.views.AppointmentView(a.id,"
+            + " p.id, p.firstName, p.lastName, p.age, p.email,"
+            + " d.id, d.firstName, d.lastName, d.age, d.email,"
+            + " r.roomName, a.startsAt, a.finishesAt)"
+            + " from Appointment a left join a.patient p left join a.doctor d left join a.room r";
+
+    /** The page of appointments after the given id, in id order. */
+    @Query(VIEW + " where a.id > :after order by a.id")
+    List<AppointmentView> findViewsAfter(@Param("after") long after, Pageable pageable);
+
+    @Query(VIEW + " where a.id = :id")
+    Optional<AppointmentView> findViewById(@Param("id") long id);
+
+    /** One appointment joined with its patient, doctor and room. */
+    @Override
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    Optional<Appointment> findById(Long id);
+
+    /**
+     * All appointments over a read-only JDBC cursor, each row joined with its patient, doctor
+     * and room. Call it inside a transaction and close the stream.
+     */
+    @Query("select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room order by a.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Appointment> streamAllByOrderByIdAsc();
+
+    /**
+     * Bookings overlapping [startsAt, finishesAt) that share the room, the doctor or the patient.
+     * Each branch is served by its (resource, starts_at, finishes_at) index; a null key matches nothing.
+     */
+    @Query("select a.room.roomName as roomName, a.doctor.id as doctorId, a.patient.id as patientId from Appointment a"
+            + " where a.startsAt < :finishesAt and a.finishesAt > :startsAt"
+            + " and (a.room.roomName = :roomName or a.doctor.id = :doctorId or a.patient.id = :patientId)")
+    List<Booking> findOverlappingBookings(@Param("roomName") String roomName, @Param("doctorId") Long doctorId, @Param("patientId") Long patientId,
+                                          @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    /**
+     * Bookings overlapping [startsAt, finishesAt) of any of the given rooms, doctors and
+     * patients, through the same indexes as {@link #findOverlappingBookings}. None of the lists
+     * may be empty.
+     */
+    @Query("select a.id as id, a.startsAt as startsAt, a.finishesAt as finishesAt, a.room.roomName as roomName,"
+            + " a.doctor.id as doctorId, a.patient.id as patientId from Appointment a"
+            + " where a.startsAt < :finishesAt and a.finishesAt > :startsAt"
+            + " and (a.room.roomName in :roomNames or a.doctor.id in :doctorIds or a.patient.id in :patientIds)")
+    List<BookedSlot> findBookedSlotsBetween(@Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt,
+                                            @Param("roomNames") Collection<String> roomNames, @Param("doctorIds") Collection<Long> doctorIds,
+                                            @Param("patientIds") Collection<Long> patientIds);
+
+    @Query("select a.id as id, a.startsAt as startsAt, a.finishesAt as finishesAt, a.room.roomName as roomName,"
+            + " a.doctor.id as doctorId, a.patient.id as patientId from Appointment a where a.id = :id")
+    Optional<BookedSlot> findBookedSlotById(@Param("id") long id);
+
+    /**
+     * Deletes the appointment in one statement, without loading it or cascading to its patient,
+     * doctor and room; returns 0 when there was none.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from Appointment a where a.id = :id")
+    int removeById(@Param("id") long id);
+
+    @Query("select a.id as id, a.startsAt as startsAt, a.finishesAt as finishesAt from Appointment a where a.room.roomName = :roomName")
+    List<Slot> findSlotsByRoomName(@Param("roomName") String roomName);
+
+    @Query("select a.id as id, a.startsAt as startsAt, a.finishesAt as finishesAt from Appointment a where a.doctor.id = :doctorId")
+    List<Slot> findSlotsByDoctorId(@Param("doctorId") long doctorId);
+
+    @Query("select a.id as id, a.startsAt as startsAt, a.finishesAt as finishesAt from Appointment a where a.patient.id = :patientId")
+    List<Slot> findSlotsByPatientId(@Param("patientId") long patientId);
+
+    /** Time slot of a booked appointment, without its patient, doctor and room. */
+    interface Slot {
+        long getId();
+        LocalDateTime getStartsAt();
+        LocalDateTime getFinishesAt();
+    }
+
+    /** Resources booked by an appointment. */
+    interface Booking {
+        String getRoomName();
+        Long getDoctorId();
+        Long getPatientId();
+    }
+
+    /** Time slot of a booked appointment together with the resources it books. */
+    interface BookedSlot extends Slot, Booking {
+    }
 }
@@ -0,0 +1,22 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.demo.views.AppointmentView;
+
+public interface AppointmentSearch {
+
+    /** The first page of appointments matching the filter, in (startsAt, id) order. */
+    List<AppointmentView> search(AppointmentFilter filter, int limit);
+
+    /** As {@link #search(AppointmentFilter, int)}, reading only the given fields of each appointment. */
+    List<AppointmentView> search(AppointmentFilter filter, Set<String> fields, int limit);
+
+    /** The page of appointments after the given id, in id order, reading only the given fields. */
+    List<AppointmentView> findViewsAfter(long after, Set<String> fields, int limit);
+
+    /** The appointment with the given id, reading only the given fields. */
+    Optional<AppointmentView> findViewById(long id, Set<String> fields);
+}
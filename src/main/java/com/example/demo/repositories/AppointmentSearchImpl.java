@@ -0,0 +1,122 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.demo.views.AppointmentView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+/**
+ * Builds the search query from the criteria actually given, so that each combination is a
+ * plain conjunction the database can serve from one of the (resource, starts_at) indexes
+ * instead of a chain of "param is null or ..." branches. Sparse reads likewise select only
+ * the columns, and join only the tables, behind the fields asked for.
+ */
+class AppointmentSearchImpl implements AppointmentSearch {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AppointmentView> search(AppointmentFilter filter, int limit){
+        String jpql = AppointmentRepository.VIEW + where(filter) + " order by a.startsAt, a.id";
+
+        TypedQuery<AppointmentView> query = entityManager.createQuery(jpql, AppointmentView.class);
+        bind(query, filter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<AppointmentView> search(AppointmentFilter filter, Set<String> fields, int limit){
+        Query query = entityManager.createQuery(select(fields) + where(filter) + " order by a.startsAt, a.id");
+        bind(query, filter);
+        return views(query.setMaxResults(limit).getResultList(), fields);
+    }
+
+    @Override
+    public List<AppointmentView> findViewsAfter(long after, Set<String> fields, int limit){
+        Query query = entityManager.createQuery(select(fields) + " where a.id > :after order by a.id");
+        query.setParameter("after", after);
+        return views(query.setMaxResults(limit).getResultList(), fields);
+    }
+
+    @Override
+    public Optional<AppointmentView> findViewById(long id, Set<String> fields){
+        Query query = entityManager.createQuery(select(fields) + " where a.id = :id");
+        query.setParameter("id", id);
+        return views(query.getResultList(), fields).stream().findFirst();
+    }
+
+    private static String where(AppointmentFilter filter){
+        StringBuilder jpql = new StringBuilder(" where 1 = 1");
+        if (filter.getDoctorId() != null) jpql.append(" and a.doctor.id = :doctorId");
+        if (filter.getPatientId() != null) jpql.append(" and a.patient.id = :patientId");
+        if (filter.getRoomName() != null) jpql.append(" and a.room.roomName = :roomName");
+        if (filter.getFrom() != null) jpql.append(" and a.startsAt >= :from");
+        if (filter.getTo() != null) jpql.append(" and a.startsAt < :to");
+        if (filter.getAfterStartsAt() != null){
+            jpql.append(" and (a.startsAt > :afterStartsAt or (a.startsAt = :afterStartsAt and a.id > :afterId))");
+        }
+        return jpql.toString();
+    }
+
+    private static void bind(Query query, AppointmentFilter filter){
+        if (filter.getDoctorId() != null) query.setParameter("doctorId", filter.getDoctorId());
+        if (filter.getPatientId() != null) query.setParameter("patientId", filter.getPatientId());
+        if (filter.getRoomName() != null) query.setParameter("roomName", filter.getRoomName());
+        if (filter.getFrom() != null) query.setParameter("from", filter.getFrom());
+        if (filter.getTo() != null) query.setParameter("to", filter.getTo());
+        if (filter.getAfterStartsAt() != null){
+            query.setParameter("afterStartsAt", filter.getAfterStartsAt());
+            query.setParameter("afterId", filter.getAfterId());
+        }
+    }
+
+    /**
+     * Id and start are always read, as the keyset cursors are made of them; the room name
+     * comes from the foreign key, so only the patient and the doctor cost a join.
+     */
+    private static String select(Set<String> fields){
+        StringBuilder jpql = new StringBuilder("select a.id, a.startsAt");
+        if (fields.contains("finishesAt")) jpql.append(", a.finishesAt");
+        if (fields.contains("room")) jpql.append(", a.room.roomName");
+        if (fields.contains("patient")) jpql.append(", p.id, p.firstName, p.lastName, p.age, p.email");
+        if (fields.contains("doctor")) jpql.append(", d.id, d.firstName, d.lastName, d.age, d.email");
+        jpql.append(" from Appointment a");
+        if (fields.contains("patient")) jpql.append(" left join a.patient p");
+        if (fields.contains("doctor")) jpql.append(" left join a.doctor d");
+        return jpql.toString();
+    }
+
+    /** Views of the rows read by {@link #select}, the fields not read left null. */
+    private static List<AppointmentView> views(List<?> rows, Set<String> fields){
+        List<AppointmentView> views = new ArrayList<>(rows.size());
+        for (Object result : rows){
+            Object[] row = (Object[]) result;
+            int column = 2;
+            LocalDateTime finishesAt = fields.contains("finishesAt") ? (LocalDateTime) row[column++] : null;
+            String roomName = fields.contains("room") ? (String) row[column++] : null;
+            Object[] patient = new Object[5];
+            if (fields.contains("patient")){
+                System.arraycopy(row, column, patient, 0, 5);
+                column += 5;
+            }
+            Object[] doctor = new Object[5];
+            if (fields.contains("doctor")){
+                System.arraycopy(row, column, doctor, 0, 5);
+            }
+            views.add(new AppointmentView((Long) row[0],
+                    (Long) patient[0], (String) patient[1], (String) patient[2], (Integer) patient[3], (String) patient[4],
+                    (Long) doctor[0], (String) doctor[1], (String) doctor[2], (Integer) doctor[3], (String) doctor[4],
+                    roomName, (LocalDateTime) row[1], finishesAt));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.repositories;
+
+import java.util.Collection;
+
+import com.example.demo.entities.ChangeStamp;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ChangeStampRepository extends JpaRepository<ChangeStamp, String> {
+
+    /** Counts a write to each of the given collections, in one statement. */
+    @Transactional
+    @Modifying
+    @Query("update ChangeStamp s set s.version = s.version + 1 where s.kind in :kinds")
+    int increment(@Param("kinds") Collection<String> kinds);
+}
@@ -1,13 +1,54 @@
 package com.example.demo.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.example.demo.entities.Doctor;
+import com.example.demo.views.PersonView;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, PersonSearch {
     List<Doctor> findAll();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+
+    /** The page of doctors after the given id, in id order. */
+    @Query("select new com.example.demo.views.PersonView(d.id, d.firstName, d.lastName, d.age, d.email) from Doctor d"
+            + " where d.id > :after order by d.id")
+    List<PersonView> findViewsAfter(@Param("after") long after, Pageable pageable);
+
+    /** All doctors over a read-only JDBC cursor; call it inside a transaction and close the stream. */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Doctor> streamAllByOrderByIdAsc();
+
+    /** Reads the doctor with SELECT ... FOR UPDATE, so that concurrent bookings of them queue up. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Doctor e where e.id = :id")
+    Optional<Doctor> findLockedById(@Param("id") long id);
+
+    /**
+     * Deletes the doctor, evicting only their entry from the second-level cache; returns 0 when
+     * there was none. They are read first, from the cache when there: a JPQL delete would be
+     * one statement, but empties the whole doctors region.
+     */
+    @Transactional
+    default int removeById(long id){
+        Optional<Doctor> doctor = findById(id);
+        doctor.ifPresent(this::delete);
+        return doctor.isPresent() ? 1 : 0;
+    }
 }
@@ -0,0 +1,8 @@
+package com.example.demo.repositories;
+
+class DoctorRepositoryImpl extends PersonSearchSupport {
+
+    DoctorRepositoryImpl(){
+        super("Doctor");
+    }
+}
@@ -1,14 +1,55 @@
 
 package com.example.demo.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.example.demo.entities.Patient;
+import com.example.demo.views.PersonView;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>, PersonSearch {
     List<Patient> findAll();
     Patient save(Patient doc);
     void delete(Patient doc);
+
+    /** The page of patients after the given id, in id order. */
+    @Query("select new com.example.demo.views.PersonView(p.id, p.firstName, p.lastName, p.age, p.email) from Patient p"
+            + " where p.id > :after order by p.id")
+    List<PersonView> findViewsAfter(@Param("after") long after, Pageable pageable);
+
+    /** All patients over a read-only JDBC cursor; call it inside a transaction and close the stream. */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Patient> streamAllByOrderByIdAsc();
+
+    /** Reads the patient with SELECT ... FOR UPDATE, so that concurrent bookings of them queue up. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Patient e where e.id = :id")
+    Optional<Patient> findLockedById(@Param("id") long id);
+
+    /**
+     * Deletes the patient, evicting only their entry from the second-level cache; returns 0 when
+     * there was none. They are read first, from the cache when there: a JPQL delete would be
+     * one statement, but empties the whole patients region.
+     */
+    @Transactional
+    default int removeById(long id){
+        Optional<Patient> patient = findById(id);
+        patient.ifPresent(this::delete);
+        return patient.isPresent() ? 1 : 0;
+    }
 }
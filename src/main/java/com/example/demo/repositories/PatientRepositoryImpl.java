@@ -0,0 +1,8 @@
+package com.example.demo.repositories;
+
+class PatientRepositoryImpl extends PersonSearchSupport {
+
+    PatientRepositoryImpl(){
+        super("Patient");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.demo.views.PersonView;
+
+public interface PersonSearch {
+
+    /** The page of people after the given id, in id order, reading only the given fields. */
+    List<PersonView> findViewsAfter(long after, Set<String> fields, int limit);
+
+    /** The person with the given id, reading only the given fields. */
+    Optional<PersonView> findViewById(long id, Set<String> fields);
+}
@@ -0,0 +1,69 @@
+package com.example.demo.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.example.demo.views.PersonView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Sparse reads of doctors and patients: the select list holds the id, which the keyset
+ * cursor needs, and only the other columns asked for.
+ */
+abstract class PersonSearchSupport implements PersonSearch {
+
+    private static final String[] COLUMNS = {"firstName", "lastName", "age", "email"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final String entity;
+
+    PersonSearchSupport(String entity){
+        this.entity = entity;
+    }
+
+    @Override
+    public List<PersonView> findViewsAfter(long after, Set<String> fields, int limit){
+        List<?> rows = entityManager.createQuery(select(fields) + " where e.id > :after order by e.id")
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+        return views(rows, fields);
+    }
+
+    @Override
+    public Optional<PersonView> findViewById(long id, Set<String> fields){
+        List<?> rows = entityManager.createQuery(select(fields) + " where e.id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        return views(rows, fields).stream().findFirst();
+    }
+
+    private String select(Set<String> fields){
+        StringBuilder jpql = new StringBuilder("select e.id");
+        for (String column : COLUMNS){
+            if (fields.contains(column)) jpql.append(", e.").append(column);
+        }
+        return jpql.append(" from ").append(entity).append(" e").toString();
+    }
+
+    /** Views of the rows read by {@link #select}, the fields not read left null. */
+    private static List<PersonView> views(List<?> rows, Set<String> fields){
+        List<PersonView> views = new ArrayList<>(rows.size());
+        for (Object result : rows){
+            Object[] row = result instanceof Object[] ? (Object[]) result : new Object[]{result};
+            Object[] values = new Object[COLUMNS.length];
+            int column = 1;
+            for (int i = 0; i < COLUMNS.length; i++){
+                if (fields.contains(COLUMNS[i])) values[i] = row[column++];
+            }
+            views.add(new PersonView((Long) row[0], (String) values[0], (String) values[1], (Integer) values[2], (String) values[3]));
+        }
+        return views;
+    }
+}
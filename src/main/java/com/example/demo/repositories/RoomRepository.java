@@ -1,17 +1,49 @@
 
 package com.example.demo.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import com.example.demo.entities.Room;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, String> {
     List<Room> findAll();
-    Optional<Room> findByRoomName(String roomName);
     Room save(Room room);
     void delete(Room room);
-    void deleteByRoomName(String roomName);
+
+    /**
+     * Deletes the room, evicting only its entry from the second-level cache; returns 0 when
+     * there was none. It is read first, from the cache when there: a JPQL delete would be one
+     * statement, but empties the whole rooms region.
+     */
+    @Transactional
+    default int removeById(String roomName){
+        Optional<Room> room = findById(roomName);
+        room.ifPresent(this::delete);
+        return room.isPresent() ? 1 : 0;
+    }
+
+    /** The page of rooms after the given name, in name order. */
+    List<Room> findByRoomNameGreaterThanOrderByRoomNameAsc(String roomName, Pageable pageable);
+
+    /** All rooms over a read-only JDBC cursor; call it inside a transaction and close the stream. */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Room> streamAllByOrderByRoomNameAsc();
+
+    /** Reads the room with SELECT ... FOR UPDATE, so that concurrent bookings of it queue up. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Room> findLockedByRoomName(String roomName);
 }
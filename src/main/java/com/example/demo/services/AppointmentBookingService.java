@@ -0,0 +1,104 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Books and cancels single appointments. Bookings sharing a room, doctor or patient are linearized
+ * on this instance by {@link ResourceLocks}; across instances the rows of the room and of a
+ * stored doctor and patient are locked in the database for the length of the booking
+ * transaction, always in that order.
+ */
+@Service
+@Profile("!reactive")
+public class AppointmentBookingService {
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final RoomRepository roomRepository;
+    private final ConflictEngine conflictEngine;
+    private final ScheduleIndex scheduleIndex;
+    private final ResourceLocks resourceLocks;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public AppointmentBookingService(AppointmentRepository appointmentRepository, DoctorRepository doctorRepository,
+                                     PatientRepository patientRepository, RoomRepository roomRepository,
+                                     ConflictEngine conflictEngine, ScheduleIndex scheduleIndex, ResourceLocks resourceLocks,
+                                     TransactionTemplate transactionTemplate){
+        this.appointmentRepository = appointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.roomRepository = roomRepository;
+        this.conflictEngine = conflictEngine;
+        this.scheduleIndex = scheduleIndex;
+        this.resourceLocks = resourceLocks;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public BookingResult book(Appointment appointment){
+        // The stripes are held until the transaction has committed and the index is updated
+        try (ResourceLocks.Held held = resourceLocks.lock(appointment)){
+            BookingResult result = transactionTemplate.execute(status -> {
+                Set<ChangeStamps.Kind> changed = EnumSet.of(ChangeStamps.Kind.APPOINTMENTS);
+                Optional<Room> room = roomRepository.findLockedByRoomName(appointment.getRoom().getRoomName());
+                if (room.isPresent()){
+                    appointment.setRoom(room.get());
+                } else {
+                    changed.add(ChangeStamps.Kind.ROOMS);
+                }
+                Long doctorId = (Long) ResourceType.DOCTOR.keyOf(appointment);
+                Long patientId = (Long) ResourceType.PATIENT.keyOf(appointment);
+                if (doctorId != null) doctorRepository.findLockedById(doctorId);
+                if (patientId != null) patientRepository.findLockedById(patientId);
+
+                Set<ResourceType> conflicts = conflictEngine.findConflicts(appointment);
+                if (!conflicts.isEmpty()){
+                    return BookingResult.rejected(conflicts);
+                }
+
+                // Stored doctors and patients are referenced, only new ones are cascaded
+                if (doctorId != null){
+                    appointment.setDoctor(doctorRepository.getReferenceById(doctorId));
+                } else if (appointment.getDoctor() != null){
+                    changed.add(ChangeStamps.Kind.DOCTORS);
+                }
+                if (patientId != null){
+                    appointment.setPatient(patientRepository.getReferenceById(patientId));
+                } else if (appointment.getPatient() != null){
+                    changed.add(ChangeStamps.Kind.PATIENTS);
+                }
+                return BookingResult.booked(appointmentRepository.save(appointment), changed);
+            });
+
+            if (result.isBooked()){
+                scheduleIndex.add(result.getAppointment());
+            }
+            return result;
+        }
+    }
+
+    /** Deletes the appointment and drops it from the index; false when there was none. */
+    public boolean cancel(long id){
+        Optional<AppointmentRepository.BookedSlot> cancelled = transactionTemplate.execute(status -> {
+            // The slot is read first: MySQL cannot return the deleted row, and the index needs it
+            Optional<AppointmentRepository.BookedSlot> slot = appointmentRepository.findBookedSlotById(id);
+            return slot.isPresent() && appointmentRepository.removeById(id) > 0 ? slot : Optional.<AppointmentRepository.BookedSlot>empty();
+        });
+        cancelled.ifPresent(scheduleIndex::remove);
+        return cancelled.isPresent();
+    }
+}
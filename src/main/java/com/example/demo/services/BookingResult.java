@@ -0,0 +1,48 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Either the stored appointment and the collections its booking wrote to, or the resources
+ * that were already taken.
+ */
+public class BookingResult {
+
+    private final Appointment appointment;
+    private final Set<ResourceType> conflicts;
+    private final Set<ChangeStamps.Kind> changed;
+
+    private BookingResult(Appointment appointment, Set<ResourceType> conflicts, Set<ChangeStamps.Kind> changed){
+        this.appointment = appointment;
+        this.conflicts = conflicts;
+        this.changed = changed;
+    }
+
+    public static BookingResult booked(Appointment appointment, Set<ChangeStamps.Kind> changed){
+        return new BookingResult(appointment, Collections.emptySet(), changed);
+    }
+
+    public static BookingResult rejected(Set<ResourceType> conflicts){
+        return new BookingResult(null, conflicts, Collections.emptySet());
+    }
+
+    public boolean isBooked(){
+        return this.conflicts.isEmpty();
+    }
+
+    public Appointment getAppointment(){
+        return this.appointment;
+    }
+
+    public Set<ResourceType> getConflicts(){
+        return this.conflicts;
+    }
+
+    /** The appointments, plus the rooms, doctors and patients created along with it. */
+    public Set<ChangeStamps.Kind> getChanged(){
+        return this.changed;
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Books many appointments at once, one chunk of up to {@link #BATCH_SIZE} at a time. Each
+ * chunk is sorted by start and checked, in one sweep, against itself and against the
+ * bookings stored in the time window it covers; the accepted ones are then inserted in JDBC
+ * batches in the same transaction, so later chunks check against what earlier ones stored.
+ * Like a single booking, a chunk holds the stripes of its resources and the rows of its
+ * rooms, doctors and patients while it is checked and stored, and only then.
+ */
+@Service
+@Profile("!reactive")
+public class BulkAppointmentService {
+
+    static final int BATCH_SIZE = 500;
+
+    private final AppointmentRepository appointmentRepository;
+    private final RoomRepository roomRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final ScheduleIndex scheduleIndex;
+    private final ResourceLocks resourceLocks;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkAppointmentService(AppointmentRepository appointmentRepository, RoomRepository roomRepository,
+                                  DoctorRepository doctorRepository, PatientRepository patientRepository, ScheduleIndex scheduleIndex, ResourceLocks resourceLocks, TransactionTemplate transactionTemplate){
+        this.appointmentRepository = appointmentRepository;
+        this.roomRepository = roomRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.scheduleIndex = scheduleIndex;
+        this.resourceLocks = resourceLocks;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Books the appointments in start order, so the earlier of two overlapping ones wins
+     * whatever its position. The collections written to are added to {@code changed} as each
+     * chunk is stored, so that they are known also when a later chunk fails.
+     */
+    public List<BulkResult> createAll(List<Appointment> appointments, Set<ChangeStamps.Kind> changed){
+        List<BulkResult> results = new ArrayList<>(Collections.nCopies(appointments.size(), null));
+        List<Item> valid = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++){
+            if (isValid(appointments.get(i))){
+                valid.add(new Item(i, appointments.get(i)));
+            } else {
+                results.set(i, new BulkResult(i, 400));
+            }
+        }
+        book(valid, results, changed);
+        return results;
+    }
+
+    /**
+     * Books the appointments taken from the iterator as they come, one chunk at a time; only
+     * the chunk being booked is held in memory, and start order applies within each chunk.
+     * The collections written to are added to {@code changed} as each chunk is stored.
+     */
+    public List<BulkResult> createAll(Iterator<Appointment> appointments, Set<ChangeStamps.Kind> changed){
+        List<BulkResult> results = new ArrayList<>();
+        List<Item> chunk = new ArrayList<>(BATCH_SIZE);
+        while (appointments.hasNext()){
+            Appointment appointment = appointments.next();
+            int index = results.size();
+            if (!isValid(appointment)){
+                results.add(new BulkResult(index, 400));
+                continue;
+            }
+            results.add(null);
+            chunk.add(new Item(index, appointment));
+            if (chunk.size() == BATCH_SIZE){
+                book(chunk, results, changed);
+                chunk = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        book(chunk, results, changed);
+        return results;
+    }
+
+    private void book(List<Item> items, List<BulkResult> results, Set<ChangeStamps.Kind> changed){
+        items.sort(Comparator.comparing((Item item) -> item.appointment.getStartsAt()).thenComparingInt(item -> item.index));
+        Deque<Item> pending = new ArrayDeque<>(items);
+        while (!pending.isEmpty()){
+            List<Item> chunk = new ArrayList<>(BATCH_SIZE);
+            while (chunk.size() < BATCH_SIZE && !pending.isEmpty()){
+                chunk.add(pending.poll());
+            }
+            List<Item> recheck = bookChunk(chunk, results, changed);
+            // They start no later than anything still pending, so the order is kept
+            for (int i = recheck.size() - 1; i >= 0; i--){
+                pending.addFirst(recheck.get(i));
+            }
+        }
+    }
+
+    /**
+     * Sweeps and stores one chunk in one transaction. When it fails, the accepted items are
+     * reported as 500, and the items rejected only because of them are handed back to be
+     * checked again.
+     */
+    private List<Item> bookChunk(List<Item> chunk, List<BulkResult> results, Set<ChangeStamps.Kind> changed){
+        Sweep sweep = new Sweep();
+        Set<ChangeStamps.Kind> written = EnumSet.noneOf(ChangeStamps.Kind.class);
+        List<Appointment> appointments = new ArrayList<>(chunk.size());
+        chunk.forEach(item -> appointments.add(item.appointment));
+
+        // Single bookings of the resources in the chunk wait until it is stored
+        try (ResourceLocks.Held held = resourceLocks.lockAll(appointments)){
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Bookings of these resources on other instances wait until the chunk is stored
+                    Keys keys = new Keys(chunk);
+                    Map<String, Room> rooms = lockRows(keys);
+                    sweep(chunk, keys, sweep, results);
+                    for (Item item : sweep.accepted){
+                        written.add(ChangeStamps.Kind.APPOINTMENTS);
+                        resolveReferences(item.appointment, rooms, written);
+                        entityManager.persist(item.appointment);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+            } catch (RuntimeException e){
+                for (Item item : chunk){
+                    if (results.get(item.index) == null && !sweep.tentative.containsKey(item)){
+                        results.set(item.index, new BulkResult(item.index, 500));
+                    }
+                }
+                return new ArrayList<>(sweep.tentative.keySet());
+            }
+        }
+
+        changed.addAll(written);
+        for (Item item : sweep.accepted){
+            scheduleIndex.add(item.appointment);
+            results.set(item.index, BulkResult.created(item.index, item.appointment.getId()));
+        }
+        sweep.tentative.forEach((item, conflicts) -> results.set(item.index, BulkResult.conflicting(item.index, conflicts)));
+        return Collections.emptyList();
+    }
+
+    /**
+     * Decides every item of the sorted chunk. Conflicts with stored bookings are final; the
+     * items that only overlap items accepted before them in the chunk are kept aside until
+     * the chunk is stored. Only the stored bookings of the chunk's rooms, doctors and
+     * patients in the window it covers are read.
+     */
+    private void sweep(List<Item> chunk, Keys keys, Sweep sweep, List<BulkResult> results){
+        LocalDateTime from = chunk.get(0).appointment.getStartsAt();
+        LocalDateTime to = from;
+        for (Item item : chunk){
+            LocalDateTime finishesAt = item.appointment.getFinishesAt();
+            if (finishesAt.isAfter(to)) to = finishesAt;
+        }
+
+        Map<ResourceType, Map<Object, IntervalTree>> stored = trees();
+        for (AppointmentRepository.BookedSlot slot : appointmentRepository.findBookedSlotsBetween(from, to,
+                keys.roomNames, orNone(keys.doctorIds), orNone(keys.patientIds))){
+            for (ResourceType type : ResourceType.values()){
+                Object key = type.keyOf(slot);
+                if (key != null){
+                    stored.get(type).computeIfAbsent(key, k -> new IntervalTree())
+                            .insert(slot.getId(), ScheduleIndex.key(slot.getStartsAt()), ScheduleIndex.key(slot.getFinishesAt()));
+                }
+            }
+        }
+
+        Map<ResourceType, Map<Object, IntervalTree>> incoming = trees();
+        for (Item item : chunk){
+            long start = ScheduleIndex.key(item.appointment.getStartsAt());
+            long end = ScheduleIndex.key(item.appointment.getFinishesAt());
+
+            Set<ResourceType> storedConflicts = conflicts(stored, item.appointment, start, end);
+            Set<ResourceType> conflicts = conflicts(incoming, item.appointment, start, end);
+            conflicts.addAll(storedConflicts);
+            if (!storedConflicts.isEmpty()){
+                results.set(item.index, BulkResult.conflicting(item.index, conflicts));
+                continue;
+            }
+            if (!conflicts.isEmpty()){
+                sweep.tentative.put(item, conflicts);
+                continue;
+            }
+
+            // Accepted items take a negative id until they are stored
+            for (ResourceType type : ResourceType.values()){
+                Object key = type.keyOf(item.appointment);
+                if (key != null){
+                    incoming.get(type).computeIfAbsent(key, k -> new IntervalTree()).insert(-1L - item.index, start, end);
+                }
+            }
+            sweep.accepted.add(item);
+        }
+    }
+
+    private static Set<ResourceType> conflicts(Map<ResourceType, Map<Object, IntervalTree>> trees, Appointment appointment, long start, long end){
+        Set<ResourceType> conflicts = EnumSet.noneOf(ResourceType.class);
+        for (ResourceType type : ResourceType.values()){
+            Object key = type.keyOf(appointment);
+            IntervalTree tree = key == null ? null : trees.get(type).get(key);
+            if (tree != null && tree.overlaps(start, end)) conflicts.add(type);
+        }
+        return conflicts;
+    }
+
+    /** An empty IN list is not valid SQL; no row has the id 0. */
+    private static Set<Long> orNone(Set<Long> ids){
+        return ids.isEmpty() ? Collections.singleton(0L) : ids;
+    }
+
+    private static Map<ResourceType, Map<Object, IntervalTree>> trees(){
+        Map<ResourceType, Map<Object, IntervalTree>> trees = new EnumMap<>(ResourceType.class);
+        for (ResourceType type : ResourceType.values()){
+            trees.put(type, new HashMap<>());
+        }
+        return trees;
+    }
+
+    /**
+     * Reads the stored rooms, doctors and patients of the chunk with SELECT ... FOR UPDATE,
+     * in the order single bookings take them and by key within each type, so that bookings
+     * cannot deadlock; returns the rooms.
+     */
+    private Map<String, Room> lockRows(Keys keys){
+        Map<String, Room> rooms = new HashMap<>();
+        for (String name : keys.roomNames){
+            roomRepository.findLockedByRoomName(name).ifPresent(room -> rooms.put(name, room));
+        }
+        keys.doctorIds.forEach(doctorRepository::findLockedById);
+        keys.patientIds.forEach(patientRepository::findLockedById);
+        return rooms;
+    }
+
+    /**
+     * Points the appointment at the doctor, patient and room already stored, so that the
+     * cascade only inserts the ones that are new, and adds the collections of those to
+     * {@code written}.
+     */
+    private void resolveReferences(Appointment appointment, Map<String, Room> rooms, Set<ChangeStamps.Kind> written){
+        if (appointment.getDoctor() != null && appointment.getDoctor().getId() != 0){
+            appointment.setDoctor(entityManager.getReference(Doctor.class, appointment.getDoctor().getId()));
+        } else if (appointment.getDoctor() != null){
+            written.add(ChangeStamps.Kind.DOCTORS);
+        }
+        if (appointment.getPatient() != null && appointment.getPatient().getId() != 0){
+            appointment.setPatient(entityManager.getReference(Patient.class, appointment.getPatient().getId()));
+        } else if (appointment.getPatient() != null){
+            written.add(ChangeStamps.Kind.PATIENTS);
+        }
+        // A room new to the database is created by its first appointment and shared by the rest
+        Room room = rooms.putIfAbsent(appointment.getRoom().getRoomName(), appointment.getRoom());
+        if (room != null){
+            appointment.setRoom(room);
+        } else {
+            written.add(ChangeStamps.Kind.ROOMS);
+        }
+    }
+
+    private static boolean isValid(Appointment appointment){
+        return appointment != null && appointment.getRoom() != null && appointment.getRoom().getRoomName() != null
+                && appointment.getStartsAt() != null && appointment.getFinishesAt() != null
+                && appointment.getStartsAt().isBefore(appointment.getFinishesAt());
+    }
+
+    /** An appointment of the request, with its position there. */
+    private static final class Item {
+        final int index;
+        final Appointment appointment;
+
+        Item(int index, Appointment appointment){
+            this.index = index;
+            this.appointment = appointment;
+        }
+    }
+
+    /** The rooms, stored doctors and stored patients a chunk books, each sorted by key. */
+    private static final class Keys {
+        final Set<String> roomNames = new TreeSet<>();
+        final Set<Long> doctorIds = new TreeSet<>();
+        final Set<Long> patientIds = new TreeSet<>();
+
+        Keys(List<Item> chunk){
+            for (Item item : chunk){
+                roomNames.add(item.appointment.getRoom().getRoomName());
+                Object doctorId = ResourceType.DOCTOR.keyOf(item.appointment);
+                Object patientId = ResourceType.PATIENT.keyOf(item.appointment);
+                if (doctorId != null) doctorIds.add((Long) doctorId);
+                if (patientId != null) patientIds.add((Long) patientId);
+            }
+        }
+    }
+
+    /** What the sweep of one chunk decided, short of the final conflicts already reported. */
+    private static final class Sweep {
+        final List<Item> accepted = new ArrayList<>();
+        final Map<Item, Set<ResourceType>> tentative = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes whole sets of rows with JPQL bulk deletes instead of loading and removing each
+ * entity. Rows go in chunks of ids, one transaction per chunk, so no transaction and no
+ * persistence context grows with the table. Bulk deletes do not cascade: deleting
+ * appointments leaves their patients, doctors and rooms in place, and deleting patients,
+ * doctors or rooms that appointments refer to fails at the first chunk holding one, after the
+ * chunks before it have committed; {@link #isReferencedByAppointments} tells beforehand.
+ */
+@Service
+@Profile("!reactive")
+public class BulkDeleteService {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkDeleteService(TransactionTemplate transactionTemplate){
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /** Deletes every row of the entity's table and returns how many went. */
+    public long deleteAll(Class<?> entity){
+        return deleteInChunks(entity, "", Collections.emptyMap());
+    }
+
+    /** Whether an appointment refers to a row of the entity's table. */
+    public boolean isReferencedByAppointments(Class<?> entity){
+        for (SingularAttribute<? super Appointment, ?> reference : entityManager.getMetamodel().entity(Appointment.class).getSingularAttributes()){
+            if (reference.getJavaType() == entity && !entityManager.createQuery(
+                    "select a.id from Appointment a where a." + reference.getName() + " is not null", Long.class)
+                    .setMaxResults(1).getResultList().isEmpty()){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Deletes the appointments starting before the given time and returns how many went. */
+    public long deleteAppointmentsBefore(LocalDateTime before){
+        return deleteInChunks(Appointment.class, " where e.startsAt < :before", Collections.singletonMap("before", before));
+    }
+
+    private long deleteInChunks(Class<?> entity, String where, Map<String, ?> parameters){
+        EntityType<?> type = entityManager.getMetamodel().entity(entity);
+        String id = type.getId(type.getIdType().getJavaType()).getName();
+        String select = "select e." + id + " from " + type.getName() + " e" + where + " order by e." + id;
+        String delete = "delete from " + type.getName() + " e where e." + id + " in :ids";
+
+        long deleted = 0;
+        while (true){
+            Integer count = transactionTemplate.execute(status -> {
+                TypedQuery<Object> query = entityManager.createQuery(select, Object.class).setMaxResults(CHUNK_SIZE);
+                parameters.forEach(query::setParameter);
+                List<Object> ids = query.getResultList();
+                if (ids.isEmpty()){
+                    return 0;
+                }
+                return entityManager.createQuery(delete).setParameter("ids", ids).executeUpdate();
+            });
+            if (count == null || count == 0){
+                return deleted;
+            }
+            deleted += count;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Stores many doctors or patients at once. Items are taken from the iterator as they come
+ * and inserted in JDBC batches, one transaction per chunk; the persistence context is
+ * flushed and cleared after each chunk, so it never holds more than one chunk.
+ */
+@Service
+@Profile("!reactive")
+public class BulkPersonService {
+
+    static final int BATCH_SIZE = 500;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkPersonService(TransactionTemplate transactionTemplate){
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Persists {@code toEntity} of every item; a null item is reported as 400, and every item
+     * of a chunk that fails to store as 500.
+     */
+    public <T> List<BulkResult> createAll(Iterator<T> items, Function<? super T, ?> toEntity){
+        List<BulkResult> results = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>(BATCH_SIZE);
+        List<Object> chunk = new ArrayList<>(BATCH_SIZE);
+
+        while (items.hasNext()){
+            T item = items.next();
+            int index = results.size();
+            if (item == null){
+                results.add(new BulkResult(index, 400));
+                continue;
+            }
+            results.add(null);
+            positions.add(index);
+            chunk.add(toEntity.apply(item));
+            if (chunk.size() == BATCH_SIZE){
+                persist(chunk, positions, results);
+            }
+        }
+        persist(chunk, positions, results);
+
+        return results;
+    }
+
+    private void persist(List<Object> chunk, List<Integer> positions, List<BulkResult> results){
+        if (chunk.isEmpty()){
+            return;
+        }
+        List<Object> ids = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Object entity : chunk){
+                    entityManager.persist(entity);
+                }
+                entityManager.flush();
+                for (Object entity : chunk){
+                    ids.add(entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity));
+                }
+                entityManager.clear();
+            });
+            for (int i = 0; i < chunk.size(); i++){
+                results.set(positions.get(i), BulkResult.created(positions.get(i), (Long) ids.get(i)));
+            }
+        } catch (RuntimeException e){
+            for (Integer index : positions){
+                results.set(index, new BulkResult(index, 500));
+            }
+        }
+        chunk.clear();
+        positions.clear();
+    }
+}
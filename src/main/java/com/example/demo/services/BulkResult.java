@@ -0,0 +1,50 @@
+package com.example.demo.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Set;
+
+/**
+ * Outcome of one item of a bulk request, reported at the position it had in the request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+
+    private final int index;
+    private final int status;
+    private Long id;
+    private Set<ResourceType> conflicts;
+
+    public BulkResult(int index, int status){
+        this.index = index;
+        this.status = status;
+    }
+
+    public static BulkResult created(int index, long id){
+        BulkResult result = new BulkResult(index, 200);
+        result.id = id;
+        return result;
+    }
+
+    public static BulkResult conflicting(int index, Set<ResourceType> conflicts){
+        BulkResult result = new BulkResult(index, 406);
+        result.conflicts = conflicts;
+        return result;
+    }
+
+    public int getIndex(){
+        return this.index;
+    }
+
+    public int getStatus(){
+        return this.status;
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+
+    public Set<ResourceType> getConflicts(){
+        return this.conflicts;
+    }
+}
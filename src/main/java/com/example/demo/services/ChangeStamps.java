@@ -0,0 +1,149 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.ChangeStamp;
+import com.example.demo.repositories.ChangeStampRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters of the appointment, doctor, patient and room collections, bumped by
+ * the controllers once a write has committed and handed out as strong ETags. The counters
+ * are the rows of the change_stamps table, so a write through any instance changes the tags
+ * every instance hands out. Each instance keeps a copy of the four rows, read again once it
+ * is {@code change-stamps.ttl} old and bumped along with its own writes, so most requests,
+ * 304s included, are answered without a query; writes through other instances show up
+ * within the ttl. Each row starts at a random version, so tags issued before the table was
+ * created again never match. Without the table's repository, as in the web test slices,
+ * the counters are kept in memory behind a random epoch and see only this instance.
+ */
+@Component
+@Profile("!reactive")
+public class ChangeStamps {
+
+    public enum Kind { APPOINTMENTS, DOCTORS, PATIENTS, ROOMS }
+
+    private final ChangeStampRepository changeStampRepository;
+    private final long ttlNanos;
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Kind.values().length);
+
+    /** Versions last read from the table, plus this instance's bumps since; null until first read. */
+    private volatile Map<String, Long> stored;
+    private volatile long readAt;
+    private long bumpedAt = System.nanoTime();
+
+    @Autowired
+    public ChangeStamps(ObjectProvider<ChangeStampRepository> changeStampRepository,
+                        @Value("${change-stamps.ttl:1s}") Duration ttl){
+        this.changeStampRepository = changeStampRepository.getIfAvailable();
+        this.ttlNanos = ttl.toNanos();
+        if (this.changeStampRepository != null){
+            Map<String, Long> seeded = read();
+            boolean missing = false;
+            for (Kind kind : Kind.values()){
+                if (seeded.containsKey(kind.name())){
+                    continue;
+                }
+                missing = true;
+                try {
+                    this.changeStampRepository.save(new ChangeStamp(kind.name(), initialVersion()));
+                } catch (DataIntegrityViolationException e){
+                    // Written meanwhile by an instance starting at the same time; its version is read below
+                }
+            }
+            if (missing){
+                read();
+            }
+        }
+    }
+
+    public void bump(Kind... kinds){
+        bump(Arrays.asList(kinds));
+    }
+
+    public void bump(Collection<Kind> kinds){
+        if (changeStampRepository == null){
+            for (Kind kind : kinds){
+                versions.incrementAndGet(kind.ordinal());
+            }
+            return;
+        }
+        List<String> names = new ArrayList<>(kinds.size());
+        for (Kind kind : kinds){
+            names.add(kind.name());
+        }
+        changeStampRepository.increment(names);
+        synchronized (this){
+            bumpedAt = System.nanoTime();
+            Map<String, Long> copy = stored;
+            if (copy != null){
+                copy = new HashMap<>(copy);
+                for (String name : names){
+                    copy.merge(name, 1L, Long::sum);
+                }
+                stored = copy;
+            }
+        }
+    }
+
+    /** Tag of a response built from the given collections; it changes whenever one of them does. */
+    public String etag(Kind... kinds){
+        if (changeStampRepository == null){
+            StringBuilder etag = new StringBuilder("\"").append(epoch);
+            for (Kind kind : kinds){
+                etag.append('-').append(versions.get(kind.ordinal()));
+            }
+            return etag.append('"').toString();
+        }
+        Map<String, Long> copy = stored;
+        if (copy == null || System.nanoTime() - readAt >= ttlNanos){
+            copy = read();
+        }
+        return etag(copy, kinds);
+    }
+
+    /** Reads the four rows; they replace the copy unless this instance bumped it while they were read. */
+    private Map<String, Long> read(){
+        long startedAt = System.nanoTime();
+        Map<String, Long> read = new HashMap<>();
+        for (ChangeStamp stamp : changeStampRepository.findAll()){
+            read.put(stamp.getKind(), stamp.getVersion());
+        }
+        synchronized (this){
+            if (stored == null || startedAt - bumpedAt > 0){
+                stored = read;
+                readAt = startedAt;
+            }
+        }
+        return read;
+    }
+    /** Tag of the given collections at the given versions, read from the change_stamps table. */
+    public static String etag(Map<String, Long> versions, Kind... kinds){
+        StringBuilder etag = new StringBuilder("\"");
+        for (Kind kind : kinds){
+            if (etag.length() > 1) etag.append('-');
+            etag.append(Long.toString(versions.getOrDefault(kind.name(), 0L), 36));
+        }
+        return etag.append('"').toString();
+    }
+
+    /** Far from zero and from the versions a table created earlier may have reached. */
+    public static long initialVersion(){
+        return ThreadLocalRandom.current().nextLong(1L << 40, 1L << 50);
+    }
+}
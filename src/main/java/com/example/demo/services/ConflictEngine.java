@@ -0,0 +1,44 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Finds which of the room, doctor and patient of a new appointment are already booked
+ * at that time, with one query on the database, which holds the bookings of every
+ * instance. The {@link ScheduleIndex} is not asked: its schedules only see this instance's
+ * writes, and would load each resource's whole history on first use.
+ */
+@Component
+@Profile("!reactive")
+public class ConflictEngine {
+
+    private final AppointmentRepository appointmentRepository;
+
+    @Autowired
+    public ConflictEngine(AppointmentRepository appointmentRepository){
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    public Set<ResourceType> findConflicts(Appointment appointment){
+        Object roomName = ResourceType.ROOM.keyOf(appointment);
+        Object doctorId = ResourceType.DOCTOR.keyOf(appointment);
+        Object patientId = ResourceType.PATIENT.keyOf(appointment);
+
+        Set<ResourceType> conflicts = EnumSet.noneOf(ResourceType.class);
+        for (AppointmentRepository.Booking booking : appointmentRepository.findOverlappingBookings(
+                (String) roomName, (Long) doctorId, (Long) patientId, appointment.getStartsAt(), appointment.getFinishesAt())){
+            for (ResourceType type : ResourceType.values()){
+                Object key = type.keyOf(appointment);
+                if (key != null && key.equals(type.keyOf(booking))) conflicts.add(type);
+            }
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves each entity's id sequence past the ids already in its table at startup, before any
+ * request is served. Hibernate creates doctor_seq, patient_seq and appointment_seq starting
+ * at 1, also on a database whose rows got their ids from the former shared
+ * hibernate_sequence; without this the first inserts would reuse those ids. A sequence that
+ * is already ahead is left alone, so every start after the first changes nothing.
+ */
+@Component
+@Profile("!reactive")
+public class IdSequences {
+
+    /** Sequence of each table, as named by the entities. */
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+    static {
+        SEQUENCES.put("doctor_seq", "doctors");
+        SEQUENCES.put("patient_seq", "patient");
+        SEQUENCES.put("appointment_seq", "appointment");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean mysql;
+
+    /** The EntityManagerFactory is only asked for so that Hibernate has created the sequences first. */
+    @Autowired
+    public IdSequences(DataSource dataSource, EntityManagerFactory entityManagerFactory) throws Exception {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.mysql = "MySQL".equalsIgnoreCase(product);
+    }
+
+    @PostConstruct
+    public void align(){
+        for (Map.Entry<String, String> sequence : SEQUENCES.entrySet()){
+            String name = sequence.getKey();
+            String table = sequence.getValue();
+            if (mysql){
+                // A single-row table; one statement, so instances starting together cannot undo each other
+                jdbcTemplate.update("update " + name + " set next_val = greatest(next_val, (select coalesce(max(id), 0) + 1 from " + table + "))");
+                continue;
+            }
+            Long next = jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from " + table, Long.class);
+            Long current = jdbcTemplate.queryForObject(
+                    "select base_value from information_schema.sequences where lower(sequence_name) = ?", Long.class, name);
+            if (current < next){
+                jdbcTemplate.execute("alter sequence " + name + " restart with " + next);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.demo.services;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Augmented AVL tree of half-open [start, end) intervals, each tagged with the id of the
+ * appointment it belongs to. Every node keeps the greatest end of its subtree, so an
+ * overlap query costs O(log n + k). Inserting the same appointment twice is a no-op.
+ * Not thread-safe: callers guard it themselves.
+ */
+public class IntervalTree {
+
+    private static final class Node {
+        final long id;
+        final long start;
+        final long end;
+        long maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(long id, long start, long end){
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public int size(){
+        return this.size;
+    }
+
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    public void insert(long id, long start, long end){
+        root = insert(root, new Node(id, start, end));
+    }
+
+    public boolean remove(long id, long start){
+        int before = size;
+        root = remove(root, id, start);
+        return size < before;
+    }
+
+    public boolean overlaps(long start, long end){
+        return firstOverlap(root, start, end) != null;
+    }
+
+    public void forEachOverlapping(long start, long end, LongConsumer action){
+        forEachOverlapping(root, start, end, (id, from, to) -> action.accept(id));
+    }
+
+    public void forEachOverlapping(long start, long end, IntervalVisitor visitor){
+        forEachOverlapping(root, start, end, visitor);
+    }
+
+    /**
+     * Visits, in time order, the free gaps of [from, to) that last at least minLength,
+     * until the visitor returns false. Only the intervals around the gaps are walked.
+     */
+    public void forEachGap(long from, long to, long minLength, GapVisitor visitor){
+        long[] cursor = {from};
+        if (forEachGap(root, to, minLength, cursor, visitor) != STOPPED && to - cursor[0] >= minLength){
+            visitor.visit(cursor[0], to);
+        }
+    }
+
+    public interface GapVisitor {
+        boolean visit(long start, long end);
+    }
+
+    public interface IntervalVisitor {
+        void visit(long id, long start, long end);
+    }
+
+    private static final int CONTINUE = 0;
+    private static final int PAST_END = 1;
+    private static final int STOPPED = 2;
+
+    private int forEachGap(Node node, long to, long minLength, long[] cursor, GapVisitor visitor){
+        if (node == null || node.maxEnd <= cursor[0]){
+            return CONTINUE;
+        }
+        int state = forEachGap(node.left, to, minLength, cursor, visitor);
+        if (state != CONTINUE){
+            return state;
+        }
+        if (node.start >= to){
+            return PAST_END;
+        }
+        if (node.start - cursor[0] >= minLength && !visitor.visit(cursor[0], node.start)){
+            return STOPPED;
+        }
+        cursor[0] = Math.max(cursor[0], node.end);
+        return forEachGap(node.right, to, minLength, cursor, visitor);
+    }
+
+    private Node insert(Node node, Node added){
+        if (node == null){
+            size++;
+            return added;
+        }
+        int cmp = compare(added.start, added.id, node);
+        if (cmp < 0){
+            node.left = insert(node.left, added);
+        } else if (cmp > 0){
+            node.right = insert(node.right, added);
+        } else {
+            return node;
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, long id, long start){
+        if (node == null){
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0){
+            node.left = remove(node.left, id, start);
+        } else if (cmp > 0){
+            node.right = remove(node.right, id, start);
+        } else {
+            size--;
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            Node successor = node.right;
+            while (successor.left != null){
+                successor = successor.left;
+            }
+            Node replacement = new Node(successor.id, successor.start, successor.end);
+            replacement.left = node.left;
+            replacement.right = removeMin(node.right);
+            node = replacement;
+        }
+        return balance(node);
+    }
+
+    private Node removeMin(Node node){
+        if (node.left == null){
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private Node firstOverlap(Node node, long start, long end){
+        while (node != null && node.maxEnd > start){
+            if (node.left != null && node.left.maxEnd > start){
+                Node found = firstOverlap(node.left, start, end);
+                if (found != null) return found;
+            }
+            if (node.start >= end){
+                return null;
+            }
+            if (node.end > start){
+                return node;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private void forEachOverlapping(Node node, long start, long end, IntervalVisitor action){
+        if (node == null || node.maxEnd <= start){
+            return;
+        }
+        forEachOverlapping(node.left, start, end, action);
+        if (node.start >= end){
+            return;
+        }
+        if (node.end > start){
+            action.visit(node.id, node.start, node.end);
+        }
+        forEachOverlapping(node.right, start, end, action);
+    }
+
+    private static int compare(long start, long id, Node node){
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Long.compare(id, node.id);
+    }
+
+    private static int height(Node node){
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node){
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node balance(Node node){
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1){
+            if (height(node.left.left) < height(node.left.right)){
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1){
+            if (height(node.right.right) < height(node.right.left)){
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node){
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node){
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a whole table to the response as one JSON array while it is being read. Rows come
+ * from a repository {@link Stream} over a JDBC cursor and are detached as soon as they are
+ * written, so neither the persistence context nor the response buffer grows with the table.
+ */
+@Component
+@Profile("!reactive")
+public class JsonExport {
+
+    static final int FLUSH_EVERY = 100;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public JsonExport(ObjectMapper objectMapper, PlatformTransactionManager transactionManager){
+        this.objectMapper = objectMapper;
+        // Flushing is batched below instead of after every row
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /** The query runs on the response thread, inside its own read-only transaction. */
+    public StreamingResponseBody of(Supplier<? extends Stream<?>> query){
+        return out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<?> rows = query.get()){
+                        write(generator, rows);
+                    } catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+            generator.close();
+        };
+    }
+
+    private void write(JsonGenerator generator, Stream<?> rows) throws IOException {
+        generator.writeStartArray();
+        // The opening bracket goes out before the first row is fetched
+        generator.flush();
+
+        int written = 0;
+        Iterator<?> iterator = rows.iterator();
+        while (iterator.hasNext()){
+            Object row = iterator.next();
+            rowWriter.writeValue(generator, row);
+            entityManager.detach(row);
+            if (++written % FLUSH_EVERY == 0){
+                generator.flush();
+            }
+        }
+        generator.writeEndArray();
+    }
+}
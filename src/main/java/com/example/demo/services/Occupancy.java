@@ -0,0 +1,37 @@
+package com.example.demo.services;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * How many 5-minute slots of a day a room has booked.
+ */
+public class Occupancy {
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private final LocalDate date;
+
+    private final int occupiedSlots;
+
+    public Occupancy(LocalDate date, int occupiedSlots){
+        this.date = date;
+        this.occupiedSlots = occupiedSlots;
+    }
+
+    public LocalDate getDate(){
+        return this.date;
+    }
+
+    public int getSlotMinutes(){
+        return SlotCalendar.SLOT_SECONDS / 60;
+    }
+
+    public int getOccupiedSlots(){
+        return this.occupiedSlots;
+    }
+
+    public int getTotalSlots(){
+        return SlotCalendar.SLOTS_PER_DAY;
+    }
+}
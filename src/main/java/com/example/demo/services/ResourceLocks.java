@@ -0,0 +1,74 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks over the rooms, doctors and patients booked by appointments. Bookings that
+ * share a resource are linearized, while bookings of unrelated resources almost never
+ * wait on each other. Stripes are always taken in index order, so holders cannot deadlock.
+ */
+@Component
+public class ResourceLocks {
+
+    static final int STRIPES = 1024;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    public ResourceLocks(){
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Held lock(Appointment appointment){
+        return lockAll(Collections.singletonList(appointment));
+    }
+
+    public Held lockAll(Collection<Appointment> appointments){
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Appointment appointment : appointments){
+            for (ResourceType type : ResourceType.values()){
+                Object key = type.keyOf(appointment);
+                if (key != null) indexes.add(stripe(type, key));
+            }
+        }
+
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        for (Integer index : indexes){
+            stripes[index].lock();
+            held.add(stripes[index]);
+        }
+        return new Held(held);
+    }
+
+    private static int stripe(ResourceType type, Object key){
+        int hash = key.hashCode() * 31 + type.ordinal();
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+    }
+
+    /** Stripes held by one booking, released by closing it. */
+    public static final class Held implements AutoCloseable {
+
+        private final List<ReentrantLock> locks;
+
+        private Held(List<ReentrantLock> locks){
+            this.locks = locks;
+        }
+
+        @Override
+        public void close(){
+            for (int i = locks.size() - 1; i >= 0; i--){
+                locks.get(i).unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * The resources an appointment books, each of which can only be in one appointment at a time.
+ */
+public enum ResourceType {
+
+    ROOM {
+        @Override
+        public Object keyOf(Appointment appointment){
+            return appointment.getRoom() == null ? null : appointment.getRoom().getRoomName();
+        }
+
+        @Override
+        public Object keyOf(AppointmentRepository.Booking booking){
+            return booking.getRoomName();
+        }
+    },
+    DOCTOR {
+        @Override
+        public Object keyOf(Appointment appointment){
+            return appointment.getDoctor() == null || appointment.getDoctor().getId() == 0 ? null : appointment.getDoctor().getId();
+        }
+
+        @Override
+        public Object keyOf(AppointmentRepository.Booking booking){
+            return booking.getDoctorId();
+        }
+    },
+    PATIENT {
+        @Override
+        public Object keyOf(Appointment appointment){
+            return appointment.getPatient() == null || appointment.getPatient().getId() == 0 ? null : appointment.getPatient().getId();
+        }
+
+        @Override
+        public Object keyOf(AppointmentRepository.Booking booking){
+            return booking.getPatientId();
+        }
+    };
+
+    /**
+     * Key of the resource booked by the appointment, or null when it books none that is
+     * already stored (a doctor or patient without id is created along with the appointment).
+     */
+    public abstract Object keyOf(Appointment appointment);
+
+    public abstract Object keyOf(AppointmentRepository.Booking booking);
+}
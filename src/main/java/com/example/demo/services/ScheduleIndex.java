@@ -0,0 +1,215 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory interval index of the appointments booked by each room, doctor and patient,
+ * behind the availability and occupancy endpoints. A resource is loaded from the database
+ * the first time it is asked for, and is then kept in sync with this instance's creates and
+ * deletes. Writes through other instances never reach it, so a schedule is read again once
+ * it is {@code schedule.index.ttl} old, which bounds how stale those answers can be. Rooms
+ * also keep a {@link SlotCalendar}, which counts occupancy without walking the tree. At most
+ * {@code schedule.index.max-resources} schedules of each type are kept; the ones used least
+ * are dropped and read again when next asked for.
+ */
+@Component
+@Profile("!reactive")
+public class ScheduleIndex {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofDays(7);
+    public static final int MAX_FREE_SLOTS = 100;
+
+    private final AppointmentRepository appointmentRepository;
+    private final Map<ResourceType, Cache<Object, Schedule>> schedules = new EnumMap<>(ResourceType.class);
+
+    @Autowired
+    public ScheduleIndex(AppointmentRepository appointmentRepository,
+                         @Value("${schedule.index.max-resources:10000}") long maxResources,
+                         @Value("${schedule.index.ttl:10s}") Duration ttl){
+        this.appointmentRepository = appointmentRepository;
+        for (ResourceType type : ResourceType.values()){
+            // Evictions run on the calling thread, so the bound holds as soon as a schedule is added
+            schedules.put(type, Caffeine.newBuilder().maximumSize(maxResources).expireAfterWrite(ttl)
+                    .executor(Runnable::run).build());
+        }
+    }
+
+    public boolean hasConflict(ResourceType type, Object key, LocalDateTime startsAt, LocalDateTime finishesAt){
+        Schedule schedule = schedule(type, key);
+        long start = key(startsAt);
+        long end = key(finishesAt);
+        schedule.lock.lock();
+        try {
+            if (schedule.calendar != null && schedule.calendar.isFree(start, end)){
+                return false;
+            }
+            return schedule.tree.overlaps(start, end);
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    /** Number of 5-minute slots of the given day touched by the room's appointments. */
+    public int occupiedSlots(String roomName, LocalDate date){
+        Schedule schedule = schedule(ResourceType.ROOM, roomName);
+        schedule.lock.lock();
+        try {
+            return schedule.calendar.occupiedSlots(date.toEpochDay());
+        } finally {
+            schedule.lock.unlock();
+        }
+    }
+
+    /**
+     * The first free slots of the given length between from and to, back to back inside
+     * each gap of the resource's schedule.
+     */
+    public List<FreeSlot> findFreeSlots(ResourceType type, Object key, LocalDateTime from, LocalDateTime to, Duration duration, int limit){
+        List<FreeSlot> slots = new ArrayList<>();
+        long length = duration.getSeconds();
+        Schedule schedule = schedule(type, key);
+        schedule.lock.lock();
+        try {
+            schedule.tree.forEachGap(key(from), key(to), length, (start, end) -> {
+                for (long slot = start; slot + length <= end && slots.size() < limit; slot += length){
+                    slots.add(new FreeSlot(dateTime(slot), dateTime(slot + length)));
+                }
+                return slots.size() < limit;
+            });
+        } finally {
+            schedule.lock.unlock();
+        }
+        return slots;
+    }
+
+    /**
+     * Adds a stored appointment to the resources that are already loaded; the others will
+     * find it in the database when they are first asked for.
+     */
+    public void add(Appointment appointment){
+        for (ResourceType type : ResourceType.values()){
+            Object key = type.keyOf(appointment);
+            Schedule schedule = key == null ? null : schedules.get(type).getIfPresent(key);
+            if (schedule == null){
+                continue;
+            }
+            schedule.lock.lock();
+            try {
+                if (schedule.loaded){
+                    schedule.insert(appointment.getId(), key(appointment.getStartsAt()), key(appointment.getFinishesAt()));
+                }
+            } finally {
+                schedule.lock.unlock();
+            }
+        }
+    }
+
+    /** Removes a deleted appointment, given by the slot it booked, from the loaded resources. */
+    public void remove(AppointmentRepository.BookedSlot slot){
+        for (ResourceType type : ResourceType.values()){
+            Object key = type.keyOf(slot);
+            Schedule schedule = key == null ? null : schedules.get(type).getIfPresent(key);
+            if (schedule == null){
+                continue;
+            }
+            schedule.lock.lock();
+            try {
+                schedule.remove(slot.getId(), key(slot.getStartsAt()), key(slot.getFinishesAt()));
+            } finally {
+                schedule.lock.unlock();
+            }
+        }
+    }
+
+    public void clear(){
+        schedules.values().forEach(Cache::invalidateAll);
+    }
+
+    private Schedule schedule(ResourceType type, Object key){
+        Schedule schedule = schedules.get(type).get(key, k -> new Schedule(type == ResourceType.ROOM));
+        schedule.lock.lock();
+        try {
+            if (!schedule.loaded){
+                for (AppointmentRepository.Slot slot : load(type, key)){
+                    schedule.insert(slot.getId(), key(slot.getStartsAt()), key(slot.getFinishesAt()));
+                }
+                schedule.loaded = true;
+            }
+        } finally {
+            schedule.lock.unlock();
+        }
+        return schedule;
+    }
+
+    private List<AppointmentRepository.Slot> load(ResourceType type, Object key){
+        switch (type){
+            case DOCTOR:
+                return appointmentRepository.findSlotsByDoctorId((Long) key);
+            case PATIENT:
+                return appointmentRepository.findSlotsByPatientId((Long) key);
+            default:
+                return appointmentRepository.findSlotsByRoomName((String) key);
+        }
+    }
+
+    static long key(LocalDateTime dateTime){
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime dateTime(long key){
+        return LocalDateTime.ofEpochSecond(key, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * A schedule is guarded by a lock rather than its monitor: the first access reads it from
+     * the database while holding the lock, and a virtual thread blocked inside a monitor would
+     * pin its carrier thread for the length of the query.
+     */
+    private static final class Schedule {
+        final ReentrantLock lock = new ReentrantLock();
+        final IntervalTree tree = new IntervalTree();
+        final SlotCalendar calendar;
+        boolean loaded;
+
+        Schedule(boolean withCalendar){
+            this.calendar = withCalendar ? new SlotCalendar() : null;
+        }
+
+        void insert(long id, long start, long end){
+            tree.insert(id, start, end);
+            if (calendar != null) calendar.mark(start, end);
+        }
+
+        /**
+         * The slots at both edges of the removed appointment may be shared with its
+         * neighbours, so they are cleared and then set again from what the tree still holds.
+         */
+        void remove(long id, long start, long end){
+            if (!tree.remove(id, start) || calendar == null){
+                return;
+            }
+            long from = SlotCalendar.firstSlot(start) * SlotCalendar.SLOT_SECONDS;
+            long to = SlotCalendar.lastSlot(end) * SlotCalendar.SLOT_SECONDS;
+            calendar.clear(from, to);
+            tree.forEachOverlapping(from, to, (other, otherStart, otherEnd) ->
+                    calendar.mark(Math.max(otherStart, from), Math.min(otherEnd, to)));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.services;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Occupancy bitmap of one room: one bit per 5-minute slot, one {@code long[5]} per day that
+ * has bookings. A slot is set when any appointment touches it, so a range whose slots are
+ * all clear is certainly free, while a set slot may still leave room for an appointment
+ * that is not aligned to the slot grid. Not thread-safe: callers guard it themselves.
+ */
+public class SlotCalendar {
+
+    public static final int SLOT_SECONDS = 5 * 60;
+    public static final int SLOTS_PER_DAY = 24 * 60 * 60 / SLOT_SECONDS;
+    static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    private final Map<Long, long[]> days = new HashMap<>();
+
+    /** Sets every slot touched by [start, end), given in epoch seconds. */
+    public void mark(long start, long end){
+        long first = firstSlot(start);
+        long last = lastSlot(end);
+        for (long day = Math.floorDiv(first, SLOTS_PER_DAY); day * SLOTS_PER_DAY < last; day++){
+            long[] words = days.computeIfAbsent(day, d -> new long[WORDS_PER_DAY]);
+            setRange(words, from(first, day), to(last, day));
+        }
+    }
+
+    /** Clears every slot touched by [start, end), given in epoch seconds. */
+    public void clear(long start, long end){
+        long first = firstSlot(start);
+        long last = lastSlot(end);
+        for (long day = Math.floorDiv(first, SLOTS_PER_DAY); day * SLOTS_PER_DAY < last; day++){
+            long[] words = days.get(day);
+            if (words == null) continue;
+            clearRange(words, from(first, day), to(last, day));
+            if (isEmpty(words)) days.remove(day);
+        }
+    }
+
+    /** True when no slot touched by [start, end) is set. */
+    public boolean isFree(long start, long end){
+        long first = firstSlot(start);
+        long last = lastSlot(end);
+        for (long day = Math.floorDiv(first, SLOTS_PER_DAY); day * SLOTS_PER_DAY < last; day++){
+            long[] words = days.get(day);
+            if (words != null && anySet(words, from(first, day), to(last, day))) return false;
+        }
+        return true;
+    }
+
+    public int occupiedSlots(long epochDay){
+        long[] words = days.get(epochDay);
+        if (words == null){
+            return 0;
+        }
+        int count = 0;
+        for (long word : words){
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static long firstSlot(long start){
+        return Math.floorDiv(start, SLOT_SECONDS);
+    }
+
+    public static long lastSlot(long end){
+        return Math.floorDiv(end + SLOT_SECONDS - 1, SLOT_SECONDS);
+    }
+
+    private static int from(long first, long day){
+        return (int) Math.max(0, first - day * SLOTS_PER_DAY);
+    }
+
+    private static int to(long last, long day){
+        return (int) Math.min(SLOTS_PER_DAY, last - day * SLOTS_PER_DAY);
+    }
+
+    private static void setRange(long[] words, int from, int to){
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++){
+            words[word] |= mask(word, from, to);
+        }
+    }
+
+    private static void clearRange(long[] words, int from, int to){
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++){
+            words[word] &= ~mask(word, from, to);
+        }
+    }
+
+    private static boolean anySet(long[] words, int from, int to){
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++){
+            if ((words[word] & mask(word, from, to)) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Bits of the given word that fall inside [from, to). */
+    private static long mask(int word, int from, int to){
+        int low = Math.max(from - (word << 6), 0);
+        int high = Math.min(to - (word << 6), 64);
+        long upTo = high == 64 ? -1L : (1L << high) - 1;
+        return upTo & (-1L << low);
+    }
+
+    private static boolean isEmpty(long[] words){
+        for (long word : words){
+            if (word != 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.views;
+
+import com.example.demo.entities.Room;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only copy of an appointment and its patient, doctor and room, built from the flat
+ * row of one joined select. It serializes to the same JSON as the entity, without a
+ * managed entity or a dirty-checking snapshot behind it. Sparse fieldsets pass their names
+ * to its filter.
+ */
+@JsonFilter(AppointmentView.FILTER)
+public class AppointmentView {
+
+    public static final String FILTER = "appointmentFields";
+
+    private final long id;
+    private final PersonView patient;
+    private final PersonView doctor;
+    private final Room room;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentView(Long id,
+                           Long patientId, String patientFirstName, String patientLastName, Integer patientAge, String patientEmail,
+                           Long doctorId, String doctorFirstName, String doctorLastName, Integer doctorAge, String doctorEmail,
+                           String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.patient = patientId == null ? null : new PersonView(patientId, patientFirstName, patientLastName, patientAge, patientEmail);
+        this.doctor = doctorId == null ? null : new PersonView(doctorId, doctorFirstName, doctorLastName, doctorAge, doctorEmail);
+        this.room = roomName == null ? null : new Room(roomName);
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public PersonView getPatient(){
+        return this.patient;
+    }
+
+    public PersonView getDoctor(){
+        return this.doctor;
+    }
+
+    public Room getRoom(){
+        return this.room;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.views;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+
+/**
+ * Read-only copy of a doctor or a patient, built straight from the selected columns. It
+ * serializes to the same JSON as the entity; sparse fieldsets pass their names to its filter.
+ */
+@JsonFilter(PersonView.FILTER)
+public class PersonView {
+
+    public static final String FILTER = "personFields";
+
+    private final long id;
+    private final String firstName;
+    private final String lastName;
+    private final Integer age;
+    private final String email;
+
+    public PersonView(Long id, String firstName, String lastName, Integer age, String email){
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.email = email;
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getFirstName(){
+        return this.firstName;
+    }
+
+    public String getLastName(){
+        return this.lastName;
+    }
+
+    public Integer getAge(){
+        return this.age;
+    }
+
+    public String getEmail(){
+        return this.email;
+    }
+}
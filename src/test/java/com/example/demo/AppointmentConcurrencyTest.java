@@ -0,0 +1,229 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.controllers.AppointmentController;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.BulkAppointmentService;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ConflictEngine;
+import com.example.demo.services.ResourceLocks;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.ScheduleIndex;
+
+/**
+ * Stress test of concurrent bookings against the real database: whatever the interleaving,
+ * no room may end up with two overlapping appointments.
+ */
+@SpringBootTest
+class AppointmentConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private AppointmentController appointmentController;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private BulkAppointmentService bulkAppointmentService;
+
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+
+    @Autowired
+    private ConflictEngine conflictEngine;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown(){
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from room");
+        scheduleIndex.clear();
+    }
+
+    @Test
+    void should_book_only_one_of_many_identical_concurrent_appointments() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        List<Callable<HttpStatus>> bookings = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++){
+            bookings.add(() -> appointmentController.createAppointment(appointment("Dermatology", startsAt, startsAt.plusHours(1))).getStatusCode());
+        }
+
+        List<HttpStatus> statuses = runConcurrently(bookings);
+
+        assertThat(statuses).filteredOn(HttpStatus.OK::equals).hasSize(1);
+        assertThat(statuses).filteredOn(HttpStatus.NOT_ACCEPTABLE::equals).hasSize(bookings.size() - 1);
+        assertThat(appointmentRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_never_double_book_a_room_under_random_concurrent_load() throws Exception {
+        Random random = new Random(7);
+        LocalDateTime day = LocalDateTime.of(2023, 4, 24, 8, 0);
+        List<Callable<HttpStatus>> bookings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++){
+            String roomName = "Room " + random.nextInt(8);
+            LocalDateTime startsAt = day.plusMinutes(5L * random.nextInt(120));
+            LocalDateTime finishesAt = startsAt.plusMinutes(5L + 5L * random.nextInt(12));
+            bookings.add(() -> appointmentController.createAppointment(appointment(roomName, startsAt, finishesAt)).getStatusCode());
+        }
+
+        List<HttpStatus> statuses = runConcurrently(bookings);
+
+        assertThat(statuses).containsOnly(HttpStatus.OK, HttpStatus.NOT_ACCEPTABLE);
+        assertThat(statuses).filteredOn(HttpStatus.OK::equals).hasSize((int) appointmentRepository.count());
+
+        assertThat(overlappingInRooms()).isZero();
+    }
+
+    @Test
+    void should_never_double_book_a_room_when_bulk_imports_race_single_bookings() throws Exception {
+        Random random = new Random(11);
+        LocalDateTime day = LocalDateTime.of(2023, 4, 24, 8, 0);
+        List<Callable<HttpStatus>> bookings = new ArrayList<>();
+        for (int i = 0; i < 200; i++){
+            List<Appointment> appointments = new ArrayList<>();
+            for (int j = 0; j < (i % 4 == 0 ? 50 : 1); j++){
+                String roomName = "Room " + random.nextInt(8);
+                LocalDateTime startsAt = day.plusMinutes(5L * random.nextInt(120));
+                appointments.add(appointment(roomName, startsAt, startsAt.plusMinutes(5L + 5L * random.nextInt(12))));
+            }
+            if (appointments.size() == 1){
+                bookings.add(() -> appointmentController.createAppointment(appointments.get(0)).getStatusCode());
+            } else {
+                bookings.add(() -> bulkAppointmentService.createAll(appointments, EnumSet.noneOf(ChangeStamps.Kind.class)).stream()
+                    .allMatch(result -> result.getStatus() == 200 || result.getStatus() == 406) ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        List<HttpStatus> statuses = runConcurrently(bookings);
+
+        assertThat(statuses).containsOnly(HttpStatus.OK, HttpStatus.NOT_ACCEPTABLE);
+        assertThat(overlappingInRooms()).isZero();
+    }
+
+    @Test
+    void should_book_a_doctor_once_when_two_instances_book_them_into_two_rooms_at_once() throws Exception {
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        // Another instance: the same database, but in-process locks of its own
+        AppointmentBookingService otherInstance = new AppointmentBookingService(appointmentRepository, doctorRepository,
+                patientRepository, roomRepository, conflictEngine, scheduleIndex, new ResourceLocks(), transactionTemplate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch booked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        try {
+            // The first booking is kept uncommitted until the second one has started
+            Future<BookingResult> first = executor.submit(() -> transactionTemplate.execute(status -> {
+                BookingResult result = appointmentBookingService.book(bookingOf(doctor, "Dermatology", startsAt));
+                booked.countDown();
+                try {
+                    commit.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }));
+            assertThat(booked.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<BookingResult> second = executor.submit(() -> otherInstance.book(bookingOf(doctor, "Oncology", startsAt)));
+            Thread.sleep(200);
+            commit.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).isBooked()).isTrue();
+            assertThat(second.get(5, TimeUnit.SECONDS).getConflicts()).containsExactly(ResourceType.DOCTOR);
+            assertThat(appointmentRepository.count()).isEqualTo(1);
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private int overlappingInRooms(){
+        return jdbcTemplate.queryForObject(
+            "select count(*) from appointment a join appointment b on a.room_id = b.room_id and a.id < b.id"
+                + " where a.starts_at < b.finishes_at and b.starts_at < a.finishes_at", Integer.class);
+    }
+
+    private static Appointment appointment(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        return new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+            new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room(roomName), startsAt, finishesAt);
+    }
+
+    private static Appointment bookingOf(Doctor doctor, String roomName, LocalDateTime startsAt){
+        Doctor stored = new Doctor();
+        stored.setId(doctor.getId());
+        return new Appointment(null, stored, new Room(roomName), startsAt, startsAt.plusHours(1));
+    }
+
+    private static List<HttpStatus> runConcurrently(List<Callable<HttpStatus>> bookings) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<HttpStatus>> futures = new ArrayList<>();
+            for (Callable<HttpStatus> booking : bookings){
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return booking.call();
+                }));
+            }
+            start.countDown();
+
+            List<HttpStatus> statuses = new ArrayList<>();
+            for (Future<HttpStatus> future : futures){
+                statuses.add(future.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package com.example.demo;
 
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -12,38 +22,101 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
 import java.time.LocalDateTime;
 import java.time.format.*;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.BulkAppointmentService;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ConflictEngine;
+import com.example.demo.services.ResourceLocks;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.ScheduleIndex;
+import com.example.demo.views.AppointmentView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @WebMvcTest(AppointmentController.class)
+@Import({ScheduleIndex.class, ConflictEngine.class, ResourceLocks.class, AppointmentBookingService.class, ChangeStamps.class,
+        SimpleMeterRegistry.class, JacksonConfiguration.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private DoctorRepository doctorRepository;
+
+    @MockBean
+    private PatientRepository patientRepository;
+
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @MockBean
+    private BulkAppointmentService bulkAppointmentService;
+
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @TestConfiguration
+    static class Transactions {
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager){
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp(){
+        scheduleIndex.clear();
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(returnsFirstArg());
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -105,13 +178,9 @@ class AppointmentControllerUnitTest{
                 .content(objectMapper.writeValueAsString(appointment)))
                 .andExpect(status().isOk());
                 
+        List<AppointmentRepository.Booking> stored = Collections.singletonList(booking("Dermatology", null, null));
+        when(appointmentRepository.findOverlappingBookings("Dermatology", null, null, startsAt, finishesAt)).thenReturn(stored);
 
-
-
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isNotAcceptable());
@@ -147,10 +216,6 @@ class AppointmentControllerUnitTest{
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isOk());
@@ -158,10 +223,230 @@ class AppointmentControllerUnitTest{
 
     }
     
+    @Test
+    void shouldNotCreateAppointmentFinishingBeforeItStarts() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("20:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("19:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldNotCreateAppointmentOverlappingOneAlreadyStoredInTheRoom() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("21:00 24/04/2023", formatter);
+
+        List<AppointmentRepository.Booking> booked = Collections.singletonList(booking("Dermatology", null, null));
+        when(appointmentRepository.findOverlappingBookings("Dermatology", null, null, startsAt, finishesAt)).thenReturn(booked);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+
+        verify(appointmentRepository, never()).findAll();
+        // Only the overlap query: no resource history is loaded to book
+        verify(appointmentRepository, never()).findSlotsByRoomName(any());
+    }
+
+    @Test
+    void shouldBookOverAppointmentDeletedThroughAnotherInstance() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("21:00 24/04/2023", formatter);
+
+        // This instance loaded the room while the appointment existed; the database no longer has it
+        AppointmentRepository.Slot stored = mock(AppointmentRepository.Slot.class);
+        when(stored.getId()).thenReturn(7L);
+        when(stored.getStartsAt()).thenReturn(LocalDateTime.parse("19:30 24/04/2023", formatter));
+        when(stored.getFinishesAt()).thenReturn(LocalDateTime.parse("20:30 24/04/2023", formatter));
+        when(appointmentRepository.findSlotsByRoomName("Dermatology")).thenReturn(Collections.singletonList(stored));
+        assertThat(scheduleIndex.hasConflict(ResourceType.ROOM, "Dermatology", startsAt, finishesAt)).isTrue();
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        // The database decided; the schedule was neither asked nor read again
+        verify(appointmentRepository, times(1)).findSlotsByRoomName("Dermatology");
+    }
+
+    @Test
+    void shouldNotCreateAppointmentWhenDatabaseReportsConflict() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        AppointmentRepository.Booking booking = mock(AppointmentRepository.Booking.class);
+        when(booking.getRoomName()).thenReturn("Dermatology");
+        when(appointmentRepository.findOverlappingBookings("Dermatology", null, null, startsAt, finishesAt))
+                .thenReturn(Collections.singletonList(booking));
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        double rejected = meterRegistry.counter("appointments.rejected").count();
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(jsonPath("$.conflicts").value("ROOM"));
+
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+        assertThat(meterRegistry.counter("appointments.rejected").count()).isEqualTo(rejected + 1);
+    }
+
+    @Test
+    void shouldNotDoubleBookDoctorInAnotherRoom() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        doctor.setId(1);
+        patient2.setId(2);
+
+        when(doctorRepository.getReferenceById(1L)).thenReturn(doctor);
+        when(patientRepository.getReferenceById(2L)).thenReturn(patient2);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        Appointment appointment2 = new Appointment(patient2, doctor, room2, startsAt.plusMinutes(30), finishesAt.plusMinutes(30));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        List<AppointmentRepository.Booking> booked = Collections.singletonList(booking("Dermatology", 1L, null));
+        when(appointmentRepository.findOverlappingBookings("Oncology", 1L, 2L, startsAt.plusMinutes(30), finishesAt.plusMinutes(30)))
+                .thenReturn(booked);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment2)))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(jsonPath("$.conflicts.length()").value(1))
+                .andExpect(jsonPath("$.conflicts[0]").value("DOCTOR"));
+    }
+
+    @Test
+    void shouldCreateAppointmentsFromJsonArray() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        List<Appointment> appointments = Arrays.asList(
+                new Appointment(patient, doctor, room, startsAt, finishesAt),
+                new Appointment(patient, doctor, room, startsAt, finishesAt));
+
+        when(bulkAppointmentService.createAll(anyList(), any())).thenReturn(Arrays.asList(BulkResult.created(0, 1), new BulkResult(1, 406)));
+
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointments)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value(406));
+    }
+
+    @Test
+    void shouldCreateAppointmentsFromNdjsonStream() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        String body = objectMapper.writeValueAsString(new Appointment(patient, doctor, new Room("Dermatology"), startsAt, finishesAt)) + "\n"
+                + objectMapper.writeValueAsString(new Appointment(patient, doctor, new Room("Oncology"), startsAt, finishesAt)) + "\n";
+
+        when(bulkAppointmentService.createAll(any(Iterator.class), any())).thenAnswer(invocation -> {
+            Iterator<Appointment> iterator = invocation.getArgument(0);
+            List<Appointment> received = new ArrayList<>();
+            iterator.forEachRemaining(received::add);
+            assertThat(received).extracting(a -> a.getRoom().getRoomName()).containsExactly("Dermatology", "Oncology");
+            assertThat(received.get(1).getStartsAt()).isEqualTo(startsAt);
+            return Arrays.asList(BulkResult.created(0, 1), BulkResult.created(1, 2));
+        });
+
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void shouldReportAnNdjsonAppointmentThatDoesNotMapAs400() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+
+        String body = objectMapper.writeValueAsString(new Appointment(patient, doctor, new Room("Dermatology"), startsAt, startsAt.plusHours(1))) + "\n"
+                + "{\"room\": {\"roomName\": \"Oncology\"}, \"startsAt\": \"tomorrow\"}\n";
+
+        when(bulkAppointmentService.createAll(any(Iterator.class), any())).thenAnswer(invocation -> {
+            Iterator<Appointment> received = invocation.getArgument(0);
+            List<BulkResult> results = new ArrayList<>();
+            received.forEachRemaining(appointment -> results.add(appointment == null
+                    ? new BulkResult(results.size(), 400) : BulkResult.created(results.size(), 1)));
+            return results;
+        });
+
+        mockMvc.perform(post("/api/appointments/bulk").contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(400));
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        List<AppointmentView> appointments = new ArrayList<AppointmentView>();
+        when(appointmentRepository.findViewsAfter(eq(0L), any())).thenReturn(appointments);
         mockMvc.perform(get("/api/appointments"))
                 .andExpect(status().isNoContent());
                 
@@ -190,12 +475,93 @@ class AppointmentControllerUnitTest{
         appointments.add(appointment);
         appointments.add(appointment2);
 
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.findViewsAfter(eq(0L), any())).thenReturn(Arrays.asList(view(appointment), view(appointment2)));
         mockMvc.perform(get("/api/appointments"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(appointments)));
                 
     }
 
+    @Test
+    void shouldSearchAppointmentsOfDoctorInWindowAndLinkToNextPage() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(3);
+        Appointment appointment = new Appointment(patient, doctor, new Room("Dermatology"),
+                LocalDateTime.of(2023, 4, 24, 19, 0), LocalDateTime.of(2023, 4, 24, 20, 0));
+        appointment.setId(8);
+
+        ArgumentCaptor<AppointmentFilter> filter = ArgumentCaptor.forClass(AppointmentFilter.class);
+        when(appointmentRepository.search(filter.capture(), eq(1))).thenReturn(Collections.singletonList(view(appointment)));
+
+        mockMvc.perform(get("/api/appointments")
+                .param("doctorId", "3")
+                .param("from", "00:00 24/04/2023")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(8))
+                .andExpect(header().string("Link",
+                        "<http://localhost/api/appointments?doctorId=3&from=00:00%2024/04/2023&after=1682362800_8&limit=1>; rel=\"next\""));
+
+        assertThat(filter.getValue().getDoctorId()).isEqualTo(3L);
+        assertThat(filter.getValue().getFrom()).isEqualTo(LocalDateTime.of(2023, 4, 24, 0, 0));
+        assertThat(filter.getValue().getPatientId()).isNull();
+        verify(appointmentRepository, never()).findViewsAfter(anyLong(), any());
+    }
+
+    @Test
+    void shouldRejectSearchWithMalformedCursor() throws Exception{
+        mockMvc.perform(get("/api/appointments")
+                .param("room", "Dermatology")
+                .param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        verify(appointmentRepository, never()).search(any(), anyInt());
+    }
+
+    @Test
+    void shouldReadAndSendOnlyTheFieldsAskedFor() throws Exception{
+        AppointmentView sparse = new AppointmentView(8L, null, null, null, null, null, null, null, null, null, null,
+                "Dermatology", LocalDateTime.of(2023, 4, 24, 19, 0), null);
+        when(appointmentRepository.findViewsAfter(eq(0L), eq(new HashSet<>(Arrays.asList("id", "room", "startsAt"))), eq(100)))
+                .thenReturn(Collections.singletonList(sparse));
+
+        mockMvc.perform(get("/api/appointments").param("fields", "room,startsAt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(8))
+                .andExpect(jsonPath("$[0].room.roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].patient").doesNotExist())
+                .andExpect(jsonPath("$[0].finishesAt").doesNotExist());
+
+        verify(appointmentRepository, never()).findViewsAfter(anyLong(), any());
+    }
+
+    @Test
+    void shouldSendTheNestedPatientWholeWhenOnlyThePatientIsAskedFor() throws Exception{
+        AppointmentView sparse = new AppointmentView(8L, 3L, "Jose Luis", "Olaya", 37, "j.olaya@email.com",
+                null, null, null, null, null, null, null, null);
+        when(appointmentRepository.findViewById(eq(8L), eq(new HashSet<>(Arrays.asList("id", "patient")))))
+                .thenReturn(Optional.of(sparse));
+
+        mockMvc.perform(get("/api/appointments/8").param("fields", "patient"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(8))
+                .andExpect(jsonPath("$.patient.id").value(3))
+                .andExpect(jsonPath("$.patient.firstName").value("Jose Luis"))
+                .andExpect(jsonPath("$.patient.email").value("j.olaya@email.com"))
+                .andExpect(jsonPath("$.doctor").doesNotExist())
+                .andExpect(jsonPath("$.room").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectUnknownField() throws Exception{
+        mockMvc.perform(get("/api/appointments").param("fields", "room,price"))
+                .andExpect(status().isBadRequest());
+
+        verify(appointmentRepository, never()).findViewsAfter(anyLong(), any());
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -212,15 +578,16 @@ class AppointmentControllerUnitTest{
 
         appointment.setId(1);
 
-        Optional<Appointment> opt = Optional.of(appointment);
+        Optional<AppointmentView> opt = Optional.of(view(appointment));
 
         assertThat(opt).isPresent();
         assertThat(opt.get().getId()).isEqualTo(appointment.getId());
         assertThat(appointment.getId()).isEqualTo(1);
 
-        when(appointmentRepository.findById(appointment.getId())).thenReturn(opt);
+        when(appointmentRepository.findViewById(appointment.getId())).thenReturn(opt);
         mockMvc.perform(get("/api/appointments/" + appointment.getId()))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(appointment)));
                 
     }
     
@@ -254,10 +621,26 @@ class AppointmentControllerUnitTest{
         assertThat(opt.get().getId()).isEqualTo(appointment.getId());
         assertThat(appointment.getId()).isEqualTo(1);
 
-        when(appointmentRepository.findById(appointment.getId())).thenReturn(opt);
+        AppointmentRepository.BookedSlot slot = mock(AppointmentRepository.BookedSlot.class);
+        when(slot.getId()).thenReturn(1L);
+        when(slot.getStartsAt()).thenReturn(startsAt);
+        when(slot.getFinishesAt()).thenReturn(finishesAt);
+        when(slot.getRoomName()).thenReturn("Dermatology");
+
+        when(appointmentRepository.findBookedSlotById(appointment.getId())).thenReturn(Optional.of(slot));
+        when(appointmentRepository.removeById(appointment.getId())).thenReturn(1);
         mockMvc.perform(delete("/api/appointments/" + appointment.getId()))
                 .andExpect(status().isOk());
-                
+
+        verify(appointmentRepository, never()).findById(appointment.getId());
+        verify(appointmentRepository, never()).deleteById(appointment.getId());
+
+        // Read and deleted in one transaction
+        InOrder inOrder = inOrder(transactionManager, appointmentRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(appointmentRepository).findBookedSlotById(appointment.getId());
+        inOrder.verify(appointmentRepository).removeById(appointment.getId());
+        inOrder.verify(transactionManager).commit(any());
     }
 
     @Test
@@ -272,7 +655,34 @@ class AppointmentControllerUnitTest{
     void shouldDeleteAllAppointments() throws Exception{
         mockMvc.perform(delete("/api/appointments"))
                 .andExpect(status().isOk());
-                
+
+        verify(bulkDeleteService).deleteAll(Appointment.class);
+        verify(appointmentRepository, never()).deleteAll();
     }
-}
 
+    @Test
+    void shouldDeleteAppointmentsStartingBefore() throws Exception{
+        mockMvc.perform(delete("/api/appointments").param("before", "00:00 01/01/2023"))
+                .andExpect(status().isOk());
+
+        verify(bulkDeleteService).deleteAppointmentsBefore(LocalDateTime.of(2023, 1, 1, 0, 0));
+        verify(bulkDeleteService, never()).deleteAll(any());
+    }
+
+    private static AppointmentRepository.Booking booking(String roomName, Long doctorId, Long patientId){
+        AppointmentRepository.Booking booking = mock(AppointmentRepository.Booking.class);
+        when(booking.getRoomName()).thenReturn(roomName);
+        when(booking.getDoctorId()).thenReturn(doctorId);
+        when(booking.getPatientId()).thenReturn(patientId);
+        return booking;
+    }
+
+    private static AppointmentView view(Appointment appointment){
+        Patient patient = appointment.getPatient();
+        Doctor doctor = appointment.getDoctor();
+        return new AppointmentView(appointment.getId(),
+                patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail(),
+                doctor.getId(), doctor.getFirstName(), doctor.getLastName(), doctor.getAge(), doctor.getEmail(),
+                appointment.getRoom().getRoomName(), appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.demo;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -14,6 +18,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.views.AppointmentView;
 
 
 @DataJpaTest
@@ -257,5 +262,104 @@ class AppointmentJpaUnitTest {
         Iterable appointments = repoAppointments.findAll();
         assertThat(appointments).isEmpty();
     }
-    
+
+    @Test
+    void should_find_overlapping_bookings_of_room_doctor_and_patient(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+        entityManager.persist(new Appointment(patient, doctor, room1, startsAt, finishesAt));
+
+        assertThat(repoAppointments.findOverlappingBookings("Dermatology", null, null, startsAt.plusMinutes(30), finishesAt.plusMinutes(30))).hasSize(1);
+        assertThat(repoAppointments.findOverlappingBookings("Dermatology", null, null, startsAt.minusHours(1), finishesAt.plusHours(1))).hasSize(1);
+        assertThat(repoAppointments.findOverlappingBookings("Dermatology", null, null, finishesAt, finishesAt.plusHours(1))).isEmpty();
+        assertThat(repoAppointments.findOverlappingBookings("Oncology", null, null, startsAt, finishesAt)).isEmpty();
+
+        assertThat(repoAppointments.findOverlappingBookings("Oncology", doctor.getId(), null, startsAt, finishesAt))
+            .singleElement()
+            .satisfies(booking -> {
+                assertThat(booking.getRoomName()).isEqualTo("Dermatology");
+                assertThat(booking.getDoctorId()).isEqualTo(doctor.getId());
+                assertThat(booking.getPatientId()).isEqualTo(patient.getId());
+            });
+        assertThat(repoAppointments.findOverlappingBookings("Oncology", null, patient.getId(), startsAt, finishesAt)).hasSize(1);
+    }
+
+    @Test
+    void should_search_appointments_by_doctor_and_start_window_in_start_order(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor1 = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor1);
+        entityManager.persist(doctor2);
+        entityManager.persist(room);
+
+        LocalDateTime day = LocalDateTime.of(2023, 4, 24, 0, 0);
+        Appointment late = entityManager.persist(new Appointment(patient, doctor1, room, day.plusHours(15), day.plusHours(16)));
+        Appointment early = entityManager.persist(new Appointment(patient, doctor1, room, day.plusHours(9), day.plusHours(10)));
+        Appointment noon = entityManager.persist(new Appointment(patient, doctor1, room, day.plusHours(12), day.plusHours(13)));
+        entityManager.persist(new Appointment(patient, doctor2, room, day.plusHours(11), day.plusHours(12)));
+        entityManager.persist(new Appointment(patient, doctor1, room, day.plusDays(1).plusHours(9), day.plusDays(1).plusHours(10)));
+
+        AppointmentFilter filter = new AppointmentFilter(doctor1.getId(), null, null, day, day.plusDays(1));
+        List<AppointmentView> firstPage = repoAppointments.search(filter, 2);
+
+        assertThat(firstPage).extracting(AppointmentView::getId).containsExactly(early.getId(), noon.getId());
+        assertThat(firstPage.get(0).getDoctor().getFirstName()).isEqualTo("Carina");
+        assertThat(firstPage.get(0).getRoom().getRoomName()).isEqualTo("Dermatology");
+
+        assertThat(filter.seekAfter(AppointmentFilter.cursorOf(firstPage.get(1)))).isTrue();
+        assertThat(repoAppointments.search(filter, 2)).extracting(AppointmentView::getId).containsExactly(late.getId());
+
+        AppointmentFilter byRoom = new AppointmentFilter(null, patient.getId(), "Dermatology", null, day.plusHours(12));
+        assertThat(repoAppointments.search(byRoom, 10)).hasSize(2);
+    }
+
+    @Test
+    void should_read_only_the_fields_asked_for(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        LocalDateTime day = LocalDateTime.of(2023, 4, 24, 0, 0);
+        Appointment appointment = entityManager.persist(new Appointment(patient, doctor, room, day.plusHours(9), day.plusHours(10)));
+
+        List<AppointmentView> views = repoAppointments.findViewsAfter(0, new HashSet<>(Arrays.asList("id", "room", "doctor")), 10);
+
+        assertThat(views).extracting(AppointmentView::getId).containsExactly(appointment.getId());
+        assertThat(views.get(0).getRoom().getRoomName()).isEqualTo("Dermatology");
+        assertThat(views.get(0).getDoctor().getLastName()).isEqualTo("Zaray");
+        assertThat(views.get(0).getPatient()).isNull();
+        assertThat(views.get(0).getFinishesAt()).isNull();
+
+        AppointmentFilter filter = new AppointmentFilter(null, patient.getId(), null, day, null);
+        List<AppointmentView> found = repoAppointments.search(filter, new HashSet<>(Arrays.asList("id", "patient", "finishesAt")), 10);
+
+        assertThat(found.get(0).getPatient().getFirstName()).isEqualTo("Jose Luis");
+        assertThat(found.get(0).getFinishesAt()).isEqualTo(day.plusHours(10));
+        assertThat(found.get(0).getDoctor()).isNull();
+        assertThat(found.get(0).getRoom()).isNull();
+
+        Optional<AppointmentView> one = repoAppointments.findViewById(appointment.getId(), new HashSet<>(Arrays.asList("id", "patient")));
+
+        assertThat(one).isPresent();
+        assertThat(one.get().getPatient().getLastName()).isEqualTo("Olaya");
+        assertThat(one.get().getDoctor()).isNull();
+    }
 }
@@ -0,0 +1,105 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * The list endpoints answer in CBOR or Smile when asked through Accept, with the same
+ * mappings as JSON.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryContentNegotiationTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp(){
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        appointmentRepository.save(new Appointment(
+                new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                new Room("Dermatology"),
+                startsAt, startsAt.plusMinutes(30)));
+    }
+
+    @AfterEach
+    void tearDown(){
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from room");
+    }
+
+    @Test
+    void shouldListAppointmentsInCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/appointments").accept(MediaType.APPLICATION_CBOR))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+          .andExpect(header().string("Vary", containsString("Accept")))
+          .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode appointments = new CBORMapper().readTree(body);
+        assertThat(appointments).hasSize(1);
+        assertThat(appointments.get(0).get("startsAt").asText()).isEqualTo("09:00 24/04/2023");
+        assertThat(appointments.get(0).get("room").get("roomName").asText()).isEqualTo("Dermatology");
+    }
+
+    @Test
+    void shouldListPatientsInSmile() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/patients").accept(SMILE))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(SMILE))
+          .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode patients = new SmileMapper().readTree(body);
+        assertThat(patients).hasSize(1);
+        assertThat(patients.get(0).get("firstName").asText()).isEqualTo("Jose Luis");
+    }
+
+    @Test
+    void shouldAcceptCborBodies() throws Exception {
+        byte[] body = new CBORMapper().writeValueAsBytes(new Room("Oncology"));
+
+        mockMvc.perform(post("/api/room").contentType(MediaType.APPLICATION_CBOR).content(body))
+          .andExpect(status().isCreated());
+    }
+
+    @Test
+    void shouldStillAnswerJsonByDefault() throws Exception {
+        mockMvc.perform(get("/api/appointments"))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+          .andExpect(jsonPath("$[0].startsAt").value("09:00 24/04/2023"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.BulkAppointmentService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ResourceLocks;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.ScheduleIndex;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BulkAppointmentService.class, ScheduleIndex.class, ResourceLocks.class})
+class BulkAppointmentServiceUnitTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentRepository repoAppointments;
+
+    @Autowired
+    private BulkAppointmentService bulkAppointmentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_report_conflicts_against_stored_and_incoming_appointments(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room dermatology = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(dermatology);
+
+        LocalDateTime ten = LocalDateTime.of(2023, 4, 24, 10, 0);
+        entityManager.persist(new Appointment(patient, doctor, dermatology, ten, ten.plusHours(1)));
+        entityManager.flush();
+
+        Doctor storedDoctor = new Doctor();
+        storedDoctor.setId(doctor.getId());
+
+        List<Appointment> incoming = Arrays.asList(
+            new Appointment(new Patient("Mariela", "Eric", 42, "m.eric@email.com"), new Doctor("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe"),
+                new Room("Dermatology"), ten.plusMinutes(30), ten.plusMinutes(90)),
+            new Appointment(new Patient("Balduino", "Yamile", 67, "b.yamile@email.com"), new Doctor("Fidela", "Filemon", 24, "f.filemon@hospital.accwe"),
+                new Room("Oncology"), ten.plusHours(3), ten.plusHours(4)),
+            new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"), storedDoctor,
+                new Room("Oncology"), ten.plusHours(2), ten.plusMinutes(210)),
+            new Appointment(new Patient("Laura", "Lopez", 18, "laura.lopez@email.com"), new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                new Room("Pediatrics"), ten.plusHours(1), ten),
+            new Appointment(new Patient("Hiram", "Chavez", 40, "hiram.chavez@email.com"), storedDoctor,
+                new Room("Dermatology"), ten.plusHours(1), ten.plusHours(2))
+        );
+
+        Set<ChangeStamps.Kind> changed = EnumSet.noneOf(ChangeStamps.Kind.class);
+        List<BulkResult> results = bulkAppointmentService.createAll(incoming, changed);
+
+        assertThat(results).extracting(BulkResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(BulkResult::getStatus).containsExactly(406, 406, 200, 400, 200);
+        assertThat(results.get(0).getConflicts()).containsExactly(ResourceType.ROOM);
+        // The earlier incoming appointment in Oncology wins, whatever its position in the request
+        assertThat(results.get(1).getConflicts()).containsExactly(ResourceType.ROOM);
+        assertThat(results.get(2).getId()).isNotNull();
+
+        assertThat(repoAppointments.findAll()).hasSize(3);
+        assertThat(repoAppointments.findById(results.get(4).getId()).get().getDoctor().getId()).isEqualTo(doctor.getId());
+        // Both stored appointments came with a new patient, one with the new Oncology room; the doctor was stored
+        assertThat(changed).containsExactly(ChangeStamps.Kind.APPOINTMENTS, ChangeStamps.Kind.PATIENTS, ChangeStamps.Kind.ROOMS);
+    }
+
+    @Test
+    void should_check_each_appointment_against_the_stored_bookings_of_its_doctor_and_patient_in_other_rooms(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room dermatology = new Room("Dermatology");
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(dermatology);
+
+        LocalDateTime ten = LocalDateTime.of(2023, 4, 24, 10, 0);
+        entityManager.persist(new Appointment(patient, doctor, dermatology, ten, ten.plusHours(1)));
+        entityManager.flush();
+
+        Doctor storedDoctor = new Doctor();
+        storedDoctor.setId(doctor.getId());
+        Patient storedPatient = new Patient();
+        storedPatient.setId(patient.getId());
+
+        List<BulkResult> results = bulkAppointmentService.createAll(Arrays.asList(
+            new Appointment(new Patient("Mariela", "Eric", 42, "m.eric@email.com"), storedDoctor,
+                new Room("Oncology"), ten.plusMinutes(30), ten.plusMinutes(90)),
+            new Appointment(storedPatient, new Doctor("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe"),
+                new Room("Pediatrics"), ten.plusMinutes(30), ten.plusMinutes(90)),
+            new Appointment(new Patient("Hiram", "Chavez", 40, "hiram.chavez@email.com"), new Doctor("Fidela", "Filemon", 24, "f.filemon@hospital.accwe"),
+                new Room("Cardiology"), ten.plusMinutes(30), ten.plusMinutes(90))
+        ), EnumSet.noneOf(ChangeStamps.Kind.class));
+
+        assertThat(results).extracting(BulkResult::getStatus).containsExactly(406, 406, 200);
+        assertThat(results.get(0).getConflicts()).containsExactly(ResourceType.DOCTOR);
+        assertThat(results.get(1).getConflicts()).containsExactly(ResourceType.PATIENT);
+    }
+
+    @Test
+    void should_store_every_appointment_of_a_batch_without_conflicts(){
+        LocalDateTime start = LocalDateTime.of(2023, 4, 24, 8, 0);
+        List<Appointment> incoming = new ArrayList<>();
+        for (int i = 0; i < 1200; i++){
+            incoming.add(new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"), new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe"),
+                new Room("Room " + (i % 10)), start.plusHours(i / 10), start.plusHours(i / 10).plusMinutes(45)));
+        }
+
+        List<BulkResult> results = bulkAppointmentService.createAll(incoming, EnumSet.noneOf(ChangeStamps.Kind.class));
+
+        assertThat(results).extracting(BulkResult::getStatus).containsOnly(200);
+        assertThat(repoAppointments.count()).isEqualTo(1200);
+    }
+
+    @Test
+    void should_book_appointments_taken_from_an_iterator_chunk_by_chunk(){
+        LocalDateTime start = LocalDateTime.of(2023, 4, 24, 8, 0);
+        List<Appointment> incoming = new ArrayList<>();
+        for (int i = 0; i < 700; i++){
+            incoming.add(new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"), new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe"),
+                new Room("Room " + (i % 10)), start.plusHours(i / 10), start.plusHours(i / 10).plusMinutes(45)));
+        }
+        // Overlaps an appointment of the first chunk, stored by the time the second one is checked
+        incoming.add(new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"), new Doctor("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe"),
+            new Room("Room 0"), start.plusMinutes(30), start.plusMinutes(90)));
+        incoming.add(null);
+
+        List<BulkResult> results = bulkAppointmentService.createAll(incoming.iterator(), EnumSet.noneOf(ChangeStamps.Kind.class));
+
+        assertThat(results).hasSize(702);
+        assertThat(results.subList(0, 700)).extracting(BulkResult::getStatus).containsOnly(200);
+        assertThat(results.get(700).getStatus()).isEqualTo(406);
+        assertThat(results.get(701).getStatus()).isEqualTo(400);
+        assertThat(repoAppointments.count()).isEqualTo(700);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void should_check_again_the_appointments_rejected_only_because_of_a_chunk_that_failed(){
+        try {
+            LocalDateTime ten = LocalDateTime.of(2023, 4, 24, 10, 0);
+            Doctor missingDoctor = new Doctor();
+            missingDoctor.setId(987654321L);
+
+            List<BulkResult> results = bulkAppointmentService.createAll(Arrays.asList(
+                new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"), missingDoctor,
+                    new Room("Dermatology"), ten, ten.plusHours(1)),
+                new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"), new Doctor("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe"),
+                    new Room("Dermatology"), ten.plusMinutes(30), ten.plusMinutes(90))
+            ), EnumSet.noneOf(ChangeStamps.Kind.class));
+
+            // The first one cannot be stored, so the second one no longer overlaps anything
+            assertThat(results).extracting(BulkResult::getStatus).containsExactly(500, 200);
+            assertThat(repoAppointments.count()).isEqualTo(1);
+        } finally {
+            jdbcTemplate.update("delete from appointment");
+            jdbcTemplate.update("delete from doctors");
+            jdbcTemplate.update("delete from patient");
+            jdbcTemplate.update("delete from room");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.BulkDeleteService;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(BulkDeleteService.class)
+class BulkDeleteServiceUnitTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PatientRepository repoPatients;
+
+    @Autowired
+    private RoomRepository repoRooms;
+
+    @Autowired
+    private AppointmentRepository repoAppointments;
+
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+
+    @Test
+    void should_delete_every_patient_over_several_chunks(){
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < 2500; i++){
+            patients.add(new Patient("Jose Luis", "Olaya", 37, "j.olaya" + i + "@email.com"));
+        }
+        repoPatients.saveAll(patients);
+
+        assertThat(bulkDeleteService.deleteAll(Patient.class)).isEqualTo(2500);
+        assertThat(repoPatients.count()).isZero();
+    }
+
+    @Test
+    void should_delete_rooms_by_name(){
+        repoRooms.save(new Room("Dermatology"));
+        repoRooms.save(new Room("Oncology"));
+
+        assertThat(bulkDeleteService.deleteAll(Room.class)).isEqualTo(2);
+        assertThat(repoRooms.findAll()).isEmpty();
+    }
+
+    @Test
+    void should_delete_only_appointments_starting_before_and_keep_their_resources(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        LocalDateTime ten = LocalDateTime.of(2023, 4, 24, 10, 0);
+        entityManager.persist(new Appointment(patient, doctor, room, ten.minusDays(2), ten.minusDays(2).plusHours(1)));
+        entityManager.persist(new Appointment(patient, doctor, room, ten.minusDays(1), ten.minusDays(1).plusHours(1)));
+        Appointment kept = entityManager.persist(new Appointment(patient, doctor, room, ten, ten.plusHours(1)));
+        entityManager.flush();
+
+        assertThat(bulkDeleteService.deleteAppointmentsBefore(ten)).isEqualTo(2);
+
+        entityManager.clear();
+        assertThat(repoAppointments.findAll()).extracting(Appointment::getId).containsExactly(kept.getId());
+        assertThat(entityManager.find(Doctor.class, doctor.getId())).isNotNull();
+        assertThat(entityManager.find(Room.class, "Dermatology")).isNotNull();
+    }
+
+    @Test
+    void should_tell_which_resources_appointments_refer_to(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+        entityManager.persist(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+
+        LocalDateTime ten = LocalDateTime.of(2023, 4, 24, 10, 0);
+        entityManager.persist(new Appointment(patient, null, room, ten, ten.plusHours(1)));
+        entityManager.flush();
+
+        assertThat(bulkDeleteService.isReferencedByAppointments(Patient.class)).isTrue();
+        assertThat(bulkDeleteService.isReferencedByAppointments(Room.class)).isTrue();
+        assertThat(bulkDeleteService.isReferencedByAppointments(Doctor.class)).isFalse();
+    }
+}
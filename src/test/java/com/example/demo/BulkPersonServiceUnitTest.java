@@ -0,0 +1,47 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entities.Patient;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.services.BulkPersonService;
+import com.example.demo.services.BulkResult;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(BulkPersonService.class)
+class BulkPersonServiceUnitTest {
+
+    @Autowired
+    private PatientRepository repoPatients;
+
+    @Autowired
+    private BulkPersonService bulkPersonService;
+
+    @Test
+    void should_store_patients_over_several_chunks_and_reject_missing_ones(){
+        List<Patient> incoming = new ArrayList<>();
+        for (int i = 0; i < 1200; i++){
+            incoming.add(i == 700 ? null : new Patient("Jose Luis", "Olaya", 37, "j.olaya" + i + "@email.com"));
+        }
+
+        List<BulkResult> results = bulkPersonService.createAll(incoming.iterator(), patient -> patient);
+
+        assertThat(results).hasSize(1200);
+        assertThat(results).extracting(BulkResult::getIndex).isSorted().doesNotHaveDuplicates();
+        assertThat(results.get(700).getStatus()).isEqualTo(400);
+        assertThat(results.get(1199).getStatus()).isEqualTo(200);
+        assertThat(repoPatients.count()).isEqualTo(1199);
+        assertThat(repoPatients.findById(results.get(1199).getId()).get().getEmail()).isEqualTo("j.olaya1199@email.com");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.ChangeStamp;
+import com.example.demo.repositories.ChangeStampRepository;
+import com.example.demo.services.ChangeStamps;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(ChangeStamps.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeStampsTest {
+
+    @Autowired
+    ChangeStamps changeStamps;
+
+    @Autowired
+    ObjectProvider<ChangeStampRepository> changeStampRepository;
+
+    @Test
+    void should_change_the_etag_when_another_instance_bumps_the_collection(){
+        ChangeStamps thisInstance = new ChangeStamps(changeStampRepository, Duration.ZERO);
+        ChangeStamps otherInstance = new ChangeStamps(changeStampRepository, Duration.ZERO);
+        String doctors = thisInstance.etag(ChangeStamps.Kind.DOCTORS);
+        String rooms = thisInstance.etag(ChangeStamps.Kind.ROOMS);
+        assertThat(otherInstance.etag(ChangeStamps.Kind.DOCTORS)).isEqualTo(doctors);
+
+        otherInstance.bump(ChangeStamps.Kind.DOCTORS);
+
+        assertThat(thisInstance.etag(ChangeStamps.Kind.DOCTORS)).isNotEqualTo(doctors);
+        assertThat(thisInstance.etag(ChangeStamps.Kind.ROOMS)).isEqualTo(rooms);
+    }
+
+    @Test
+    void should_answer_from_its_copy_within_the_ttl_and_count_its_own_bumps(){
+        ChangeStamps thisInstance = new ChangeStamps(changeStampRepository, Duration.ofHours(1));
+        ChangeStamps otherInstance = new ChangeStamps(changeStampRepository, Duration.ZERO);
+        String patients = thisInstance.etag(ChangeStamps.Kind.PATIENTS);
+
+        otherInstance.bump(ChangeStamps.Kind.PATIENTS);
+
+        assertThat(thisInstance.etag(ChangeStamps.Kind.PATIENTS)).isEqualTo(patients);
+
+        thisInstance.bump(ChangeStamps.Kind.PATIENTS);
+
+        assertThat(thisInstance.etag(ChangeStamps.Kind.PATIENTS)).isNotEqualTo(patients);
+    }
+
+    @Test
+    void should_keep_the_versions_of_instances_started_earlier(){
+        String etag = changeStamps.etag(ChangeStamps.Kind.values());
+
+        new ChangeStamps(changeStampRepository, Duration.ZERO);
+
+        assertThat(changeStamps.etag(ChangeStamps.Kind.values())).isEqualTo(etag);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_start_when_another_instance_writes_the_rows_first(){
+        ChangeStampRepository racingRepository = mock(ChangeStampRepository.class);
+        when(racingRepository.findAll()).thenReturn(Collections.emptyList(),
+                Collections.singletonList(new ChangeStamp(ChangeStamps.Kind.ROOMS.name(), 42)));
+        when(racingRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        ObjectProvider<ChangeStampRepository> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(racingRepository);
+
+        ChangeStamps starting = new ChangeStamps(provider, Duration.ofHours(1));
+
+        assertThat(starting.etag(ChangeStamps.Kind.ROOMS)).isEqualTo(ChangeStamps.etag(Collections.singletonMap("ROOMS", 42L), ChangeStamps.Kind.ROOMS));
+    }
+}
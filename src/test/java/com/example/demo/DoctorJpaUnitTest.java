@@ -1,6 +1,11 @@
 package com.example.demo;
 
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.jupiter.api.Test;
@@ -13,6 +18,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 
 import com.example.demo.repositories.DoctorRepository;
 import com.example.demo.entities.Doctor;
+import com.example.demo.views.PersonView;
 
 
 @DataJpaTest
@@ -103,4 +109,29 @@ class DoctorJpaUnitTest {
         assertThat(repository.findAll()).isEmpty();
     }
     
+
+    @Test
+    void should_read_only_the_doctor_fields_asked_for(){
+        Doctor doc = entityManager.persist(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+
+        List<PersonView> doctors = repository.findViewsAfter(0, new HashSet<>(Arrays.asList("id", "email")), 10);
+
+        assertThat(doctors).hasSize(1);
+        assertThat(doctors.get(0).getId()).isEqualTo(doc.getId());
+        assertThat(doctors.get(0).getEmail()).isEqualTo("j.carlos@hospital.accwe");
+        assertThat(doctors.get(0).getFirstName()).isNull();
+        assertThat(doctors.get(0).getAge()).isNull();
+    }
+
+    @Test
+    void should_read_only_the_fields_asked_for_of_one_doctor(){
+        Doctor doc = entityManager.persist(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+
+        Optional<PersonView> doctor = repository.findViewById(doc.getId(), new HashSet<>(Arrays.asList("id", "age")));
+
+        assertThat(doctor).isPresent();
+        assertThat(doctor.get().getAge()).isEqualTo(34);
+        assertThat(doctor.get().getLastName()).isNull();
+        assertThat(repository.findViewById(doc.getId() + 1, new HashSet<>(Arrays.asList("id", "age")))).isEmpty();
+    }
 }
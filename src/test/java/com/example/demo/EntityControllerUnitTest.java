@@ -7,9 +7,16 @@ import com.example.demo.controllers.RoomController;
 import com.example.demo.entities.Doctor;
 import com.example.demo.entities.Patient;
 import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
 import com.example.demo.repositories.DoctorRepository;
 import com.example.demo.repositories.PatientRepository;
 import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.BulkPersonService;
+import com.example.demo.services.BulkResult;
+import com.example.demo.services.ChangeStamps;
+import com.example.demo.services.ScheduleIndex;
+import com.example.demo.views.PersonView;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -17,17 +24,33 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -40,25 +63,38 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  */
 
 @WebMvcTest(DoctorController.class)
+@Import({ScheduleIndex.class, ChangeStamps.class, JacksonConfiguration.class})
 class DoctorControllerUnitTest {
 
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private AppointmentRepository appointmentRepository;
+
+    @MockBean
+    private BulkPersonService bulkPersonService;
+
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChangeStamps changeStamps;
+
     @Test
     void shouldReturnAllDoctors() throws Exception {
         // Arrange
-        List<Doctor> doctors = new ArrayList<>();
-        doctors.add(new Doctor("John", "Doe", 35, "john.doe@example.com"));
-        doctors.add(new Doctor("Jane", "Smith", 40, "jane.smith@example.com"));
+        List<PersonView> doctors = new ArrayList<>();
+        doctors.add(new PersonView(1L, "John", "Doe", 35, "john.doe@example.com"));
+        doctors.add(new PersonView(2L, "Jane", "Smith", 40, "jane.smith@example.com"));
 
-        when(doctorRepository.findAll()).thenReturn(doctors);
+        when(doctorRepository.findViewsAfter(eq(0L), any())).thenReturn(doctors);
 
         // Act and Assert
         mockMvc.perform(get("/api/doctors"))
@@ -66,6 +102,54 @@ class DoctorControllerUnitTest {
           .andExpect(jsonPath("$.length()").value(doctors.size()));
     }
 
+    @Test
+    void shouldLinkToNextPageOfDoctorsWhenPageIsFull() throws Exception {
+        // Arrange
+        PersonView first = new PersonView(7L, "John", "Doe", 35, "john.doe@example.com");
+        PersonView second = new PersonView(9L, "Jane", "Smith", 40, "jane.smith@example.com");
+
+        when(doctorRepository.findViewsAfter(eq(5L), any())).thenReturn(Arrays.asList(first, second));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors").param("after", "5").param("limit", "2"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(2))
+          .andExpect(header().string("Link", "<http://localhost/api/doctors?after=9&limit=2>; rel=\"next\""));
+    }
+
+    @Test
+    void shouldRejectDoctorPageOverTheLimit() throws Exception {
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors").param("limit", "1001"))
+          .andExpect(status().isBadRequest());
+
+        verify(doctorRepository, never()).findViewsAfter(anyLong(), any());
+    }
+
+    @Test
+    void shouldReturnOnlyTheDoctorFieldsAskedFor() throws Exception {
+        // Arrange
+        PersonView doctor = new PersonView(1L, null, "Doe", null, null);
+
+        when(doctorRepository.findViewsAfter(eq(0L), eq(new HashSet<>(Arrays.asList("id", "lastName"))), eq(100)))
+          .thenReturn(Collections.singletonList(doctor));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors").param("fields", "lastName"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$[0].id").value(1))
+          .andExpect(jsonPath("$[0].lastName").value("Doe"))
+          .andExpect(jsonPath("$[0].firstName").doesNotExist())
+          .andExpect(jsonPath("$[0].age").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectUnknownDoctorField() throws Exception {
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors").param("fields", "salary"))
+          .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnDoctorById() throws Exception {
         // Arrange
@@ -85,6 +169,24 @@ class DoctorControllerUnitTest {
           .andExpect(jsonPath("$.email").value(doctor.getEmail()));
     }
 
+    @Test
+    void shouldReadOnlyTheFieldsAskedForOfOneDoctor() throws Exception {
+        // Arrange
+        long doctorId = 1;
+
+        when(doctorRepository.findViewById(doctorId, new HashSet<>(Arrays.asList("id", "email"))))
+          .thenReturn(Optional.of(new PersonView(doctorId, null, null, null, "john.doe@example.com")));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors/{id}", doctorId).param("fields", "email"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.id").value(doctorId))
+          .andExpect(jsonPath("$.email").value("john.doe@example.com"))
+          .andExpect(jsonPath("$.firstName").doesNotExist());
+
+        verify(doctorRepository, never()).findById(anyLong());
+    }
+
     @Test
     void shouldReturnNotFoundForNonexistentDoctor() throws Exception {
         // Arrange
@@ -97,6 +199,43 @@ class DoctorControllerUnitTest {
           .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldNotShareADoctorLoadStartedBeforeTheCurrentETag() throws Exception {
+        // Arrange
+        long doctorId = 1;
+        Doctor before = new Doctor("John", "Doe", 35, "john.doe@example.com");
+        Doctor after = new Doctor("John", "Doe", 36, "john.doe@example.com");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(doctorRepository.findById(doctorId)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(before);
+        }).thenReturn(Optional.of(after));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act: a first load is running when the doctor changes, then a second request comes
+            Future<MvcResult> first = executor.submit(() -> mockMvc.perform(get("/api/doctors/{id}", doctorId)).andReturn());
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            changeStamps.bump(ChangeStamps.Kind.DOCTORS);
+            Future<MvcResult> second = executor.submit(() -> mockMvc.perform(get("/api/doctors/{id}", doctorId)).andReturn());
+            MvcResult fresh = second.get(5, TimeUnit.SECONDS);
+            release.countDown();
+            MvcResult stale = first.get(5, TimeUnit.SECONDS);
+
+            // Assert: each body goes with the tag read before it was loaded
+            assertThat(fresh.getResponse().getContentAsString()).contains("\"age\":36");
+            assertThat(stale.getResponse().getContentAsString()).contains("\"age\":35");
+            assertThat(fresh.getResponse().getHeader("ETag")).isNotEqualTo(stale.getResponse().getHeader("ETag"));
+            verify(doctorRepository, times(2)).findById(doctorId);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void shouldCreateDoctor() throws Exception {
         // Arrange
@@ -115,20 +254,45 @@ class DoctorControllerUnitTest {
           .andExpect(jsonPath("$.email").value(doctor.getEmail()));
     }
 
+    @Test
+    void shouldCreateDoctorsInBulk() throws Exception {
+        // Arrange
+        Doctor doctor = new Doctor("John", "Doe", 35, "john.doe@example.com");
+        doctor.setId(42);
+        List<Doctor> doctors = Arrays.asList(doctor, new Doctor("Jane", "Smith", 40, "jane.smith@example.com"));
+
+        when(bulkPersonService.createAll(any(), any())).thenAnswer(invocation -> {
+            Iterator<Doctor> received = invocation.getArgument(0);
+            Function<Doctor, Object> toEntity = invocation.getArgument(1);
+            Doctor stored = (Doctor) toEntity.apply(received.next());
+            // The id sent by the client is not kept
+            assertThat(stored.getId()).isZero();
+            assertThat(stored.getFirstName()).isEqualTo("John");
+            return Arrays.asList(BulkResult.created(0, 1), BulkResult.created(1, 2));
+        });
+
+        // Act and Assert
+        mockMvc.perform(post("/api/doctors/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(doctors)))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(2))
+          .andExpect(jsonPath("$[1].id").value(2));
+    }
+
     @Test
     void shouldDeleteDoctor() throws Exception {
         // Arrange
         long doctorId = 1;
-        Doctor doctor = new Doctor("John", "Doe", 35, "john.doe@example.com");
-        doctor.setId(doctorId);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
+        when(doctorRepository.removeById(doctorId)).thenReturn(1);
 
         // Act and Assert
         mockMvc.perform(delete("/api/doctors/{id}", doctorId))
           .andExpect(status().isOk());
 
-        verify(doctorRepository, times(1)).deleteById(doctorId);
+        verify(doctorRepository, times(1)).removeById(doctorId);
+        verify(doctorRepository, never()).findById(doctorId);
     }
 
     @Test
@@ -136,7 +300,7 @@ class DoctorControllerUnitTest {
         // Arrange
         long doctorId = 1;
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.empty());
+        when(doctorRepository.removeById(doctorId)).thenReturn(0);
 
         // Act and Assert
         mockMvc.perform(delete("/api/doctors/{id}", doctorId))
@@ -144,14 +308,59 @@ class DoctorControllerUnitTest {
 
         verify(doctorRepository, times(0)).deleteById(doctorId);
     }
+
+    @Test
+    void shouldReturnDoctorAvailability() throws Exception {
+        // Arrange
+        long doctorId = 1;
+        AppointmentRepository.Slot booked = mock(AppointmentRepository.Slot.class);
+        when(booked.getId()).thenReturn(5L);
+        when(booked.getStartsAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 9, 0));
+        when(booked.getFinishesAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 10, 0));
+
+        when(doctorRepository.existsById(doctorId)).thenReturn(true);
+        when(appointmentRepository.findSlotsByDoctorId(doctorId)).thenReturn(Collections.singletonList(booked));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors/{id}/availability", doctorId)
+            .param("from", "09:00 24/04/2023")
+            .param("to", "18:00 24/04/2023")
+            .param("duration", "45")
+            .param("limit", "1"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(1))
+          .andExpect(jsonPath("$[0].startsAt").value("10:00 24/04/2023"))
+          .andExpect(jsonPath("$[0].finishesAt").value("10:45 24/04/2023"));
+
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldReturnNotFoundForAvailabilityOfNonexistentDoctor() throws Exception {
+        // Arrange
+        long doctorId = 1;
+
+        when(doctorRepository.existsById(doctorId)).thenReturn(false);
+
+        // Act and Assert
+        mockMvc.perform(get("/api/doctors/{id}/availability", doctorId))
+          .andExpect(status().isNotFound());
+    }
 }
 
 @WebMvcTest(PatientController.class)
+@Import({ChangeStamps.class, JacksonConfiguration.class})
 class PatientControllerUnitTest{
 
     @MockBean
     private PatientRepository patientRepository;
 
+    @MockBean
+    private BulkPersonService bulkPersonService;
+
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -165,14 +374,19 @@ class PatientControllerUnitTest{
         patients.add(new Patient("John", "Doe", 35, "john.doe@example.com"));
         patients.add(new Patient("Jane", "Smith", 28, "jane.smith@example.com"));
 
-        when(patientRepository.findAll()).thenReturn(patients);
+        List<PersonView> views = new ArrayList<>();
+        for (Patient patient : patients){
+            views.add(new PersonView(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail()));
+        }
+
+        when(patientRepository.findViewsAfter(eq(0L), any())).thenReturn(views);
 
         // Act and Assert
         mockMvc.perform(get("/api/patients"))
           .andExpect(status().isOk())
           .andExpect(content().json(objectMapper.writeValueAsString(patients)));
 
-        verify(patientRepository, times(1)).findAll();
+        verify(patientRepository, times(1)).findViewsAfter(eq(0L), any());
     }
 
     @Test
@@ -250,12 +464,60 @@ class PatientControllerUnitTest{
         verify(patientRepository, times(1)).save(any(Patient.class));
     }
 
+    @Test
+    void shouldCreatePatientsFromNdjsonStream() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(new Patient("John", "Doe", 35, "john.doe@example.com")) + "\n"
+                + objectMapper.writeValueAsString(new Patient("Jane", "Smith", 40, "jane.smith@example.com")) + "\n";
+
+        when(bulkPersonService.createAll(any(), any())).thenAnswer(invocation -> {
+            Iterator<Patient> received = invocation.getArgument(0);
+            List<String> names = new ArrayList<>();
+            received.forEachRemaining(patient -> names.add(patient.getFirstName()));
+            assertThat(names).containsExactly("John", "Jane");
+            return Arrays.asList(BulkResult.created(0, 1), new BulkResult(1, 500));
+        });
+
+        // Act and Assert
+        mockMvc.perform(post("/api/patients/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$[0].status").value(200))
+          .andExpect(jsonPath("$[1].status").value(500));
+    }
+
+    @Test
+    void shouldReportAMalformedNdjsonLineAndKeepTheLinesBeforeIt() throws Exception {
+        // Arrange
+        String body = objectMapper.writeValueAsString(new Patient("John", "Doe", 35, "john.doe@example.com")) + "\n"
+                + "{\"firstName\": \"Jane\", \"lastName\n"
+                + objectMapper.writeValueAsString(new Patient("Jim", "Beam", 50, "jim.beam@example.com")) + "\n";
+
+        when(bulkPersonService.createAll(any(), any())).thenAnswer(invocation -> {
+            Iterator<Patient> received = invocation.getArgument(0);
+            List<BulkResult> results = new ArrayList<>();
+            received.forEachRemaining(patient -> results.add(patient == null
+                    ? new BulkResult(results.size(), 400) : BulkResult.created(results.size(), results.size() + 1)));
+            return results;
+        });
+
+        // Act and Assert
+        mockMvc.perform(post("/api/patients/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(2))
+          .andExpect(jsonPath("$[0].status").value(200))
+          .andExpect(jsonPath("$[1].status").value(400));
+    }
+
     @Test
     void shouldReturnNotFoundForNonexistentPatientOnDelete() throws Exception {
         // Arrange
         long patientId = 1;
 
-        when(patientRepository.findById(patientId)).thenReturn(Optional.empty());
+        when(patientRepository.removeById(patientId)).thenReturn(0);
 
         // Act and Assert
         mockMvc.perform(delete("/api/patients/{id}", patientId))
@@ -268,26 +530,32 @@ class PatientControllerUnitTest{
     void shouldDeletePatient() throws Exception {
         // Arrange
         long patientId = 1;
-        Patient patient = new Patient("John", "Doe", 35, "john.doe@example.com");
 
-        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(patientRepository.removeById(patientId)).thenReturn(1);
 
         // Act and Assert
         mockMvc.perform(delete("/api/patients/{id}", patientId))
           .andExpect(status().isOk());
 
-        verify(patientRepository, times(1)).findById(patientId);
-        verify(patientRepository, times(1)).deleteById(patientId);
+        verify(patientRepository, never()).findById(patientId);
+        verify(patientRepository, times(1)).removeById(patientId);
     }
 
 }
 
 @WebMvcTest(RoomController.class)
+@Import({ScheduleIndex.class, ChangeStamps.class})
 class RoomControllerUnitTest{
 
     @MockBean
     private RoomRepository roomRepository;
 
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private AppointmentRepository appointmentRepository;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -301,7 +569,7 @@ class RoomControllerUnitTest{
         rooms.add(new Room("Dermatology"));
         rooms.add(new Room("Cardiology"));
 
-        when(roomRepository.findAll()).thenReturn(rooms);
+        when(roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(eq(""), any())).thenReturn(rooms);
 
         // Act
         MvcResult result = mockMvc.perform(get("/api/rooms"))
@@ -320,7 +588,7 @@ class RoomControllerUnitTest{
         JSONObject room2 = roomsJsonArray.getJSONObject(1);
         assertEquals("Cardiology", room2.getString("roomName"));
 
-        verify(roomRepository, times(1)).findAll();
+        verify(roomRepository, times(1)).findByRoomNameGreaterThanOrderByRoomNameAsc(eq(""), any());
     }
 
     @Test
@@ -329,7 +597,7 @@ class RoomControllerUnitTest{
         String roomName = "Dermatology";
         Room room = new Room(roomName);
 
-        when(roomRepository.findByRoomName(roomName)).thenReturn(Optional.of(room));
+        when(roomRepository.findById(roomName)).thenReturn(Optional.of(room));
 
         // Act
         MvcResult result = mockMvc.perform(get("/api/rooms/{roomName}", roomName))
@@ -342,7 +610,7 @@ class RoomControllerUnitTest{
         // Assert
         assertEquals(roomName, roomJson.getString("roomName"));
 
-        verify(roomRepository, times(1)).findByRoomName(roomName);
+        verify(roomRepository, times(1)).findById(roomName);
     }
 
     @Test
@@ -370,15 +638,22 @@ class RoomControllerUnitTest{
     void shouldDeleteRoomByRoomName() throws Exception {
         // Arrange
         String roomName = "Dermatology";
-        Room room = new Room(roomName);
 
-        when(roomRepository.findByRoomName(roomName)).thenReturn(Optional.of(room));
+        when(roomRepository.removeById(roomName)).thenReturn(1);
 
         // Act and Assert
         mockMvc.perform(delete("/api/rooms/{roomName}", roomName))
           .andExpect(status().isOk());
 
-        verify(roomRepository, times(1)).deleteByRoomName(roomName);
+        verify(roomRepository, times(1)).removeById(roomName);
+        verify(roomRepository, never()).findById(roomName);
+    }
+
+    @Test
+    void shouldReturnNotFoundForNonexistentRoomOnDelete() throws Exception {
+        // Act and Assert
+        mockMvc.perform(delete("/api/rooms/{roomName}", "Radiology"))
+          .andExpect(status().isNotFound());
     }
 
     @Test
@@ -387,7 +662,114 @@ class RoomControllerUnitTest{
         mockMvc.perform(delete("/api/rooms"))
           .andExpect(status().isOk());
 
-        verify(roomRepository, times(1)).deleteAll();
+        verify(bulkDeleteService, times(1)).deleteAll(Room.class);
+    }
+
+    @Test
+    void shouldDeleteNoRoomWhileAppointmentsReferToRooms() throws Exception {
+        // Arrange
+        when(bulkDeleteService.isReferencedByAppointments(Room.class)).thenReturn(true);
+
+        // Act and Assert
+        mockMvc.perform(delete("/api/rooms"))
+          .andExpect(status().isConflict());
+
+        verify(bulkDeleteService, never()).deleteAll(any());
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldReturnRoomAvailability() throws Exception {
+        // Arrange
+        String roomName = "Dermatology";
+        AppointmentRepository.Slot booked = mock(AppointmentRepository.Slot.class);
+        when(booked.getId()).thenReturn(5L);
+        when(booked.getStartsAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 10, 0));
+        when(booked.getFinishesAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 11, 0));
+
+        when(roomRepository.findById(roomName)).thenReturn(Optional.of(new Room(roomName)));
+        when(appointmentRepository.findSlotsByRoomName(roomName)).thenReturn(Collections.singletonList(booked));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/rooms/{roomName}/availability", roomName)
+            .param("from", "09:00 24/04/2023")
+            .param("to", "12:00 24/04/2023")
+            .param("duration", "30"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(4))
+          .andExpect(jsonPath("$[0].startsAt").value("09:00 24/04/2023"))
+          .andExpect(jsonPath("$[1].finishesAt").value("10:00 24/04/2023"))
+          .andExpect(jsonPath("$[2].startsAt").value("11:00 24/04/2023"))
+          .andExpect(jsonPath("$[3].finishesAt").value("12:00 24/04/2023"));
+    }
+
+    @Test
+    void shouldRejectAvailabilityWindowEndingBeforeItStarts() throws Exception {
+        // Act and Assert
+        mockMvc.perform(get("/api/rooms/{roomName}/availability", "Dermatology")
+            .param("from", "12:00 24/04/2023")
+            .param("to", "09:00 24/04/2023"))
+          .andExpect(status().isBadRequest());
+
+        verify(roomRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldReturnRoomOccupancy() throws Exception {
+        // Arrange
+        String roomName = "Radiology";
+        AppointmentRepository.Slot booked = mock(AppointmentRepository.Slot.class);
+        when(booked.getId()).thenReturn(5L);
+        when(booked.getStartsAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 10, 0));
+        when(booked.getFinishesAt()).thenReturn(LocalDateTime.of(2023, 4, 24, 11, 2));
+
+        when(roomRepository.findById(roomName)).thenReturn(Optional.of(new Room(roomName)));
+        when(appointmentRepository.findSlotsByRoomName(roomName)).thenReturn(Collections.singletonList(booked));
+
+        // Act and Assert
+        mockMvc.perform(get("/api/rooms/{roomName}/occupancy", roomName)
+            .param("date", "24/04/2023"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.date").value("24/04/2023"))
+          .andExpect(jsonPath("$.slotMinutes").value(5))
+          .andExpect(jsonPath("$.occupiedSlots").value(13))
+          .andExpect(jsonPath("$.totalSlots").value(288));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutQueryingWhileRoomsAreUnchanged() throws Exception {
+        // Arrange
+        when(roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(eq(""), any())).thenReturn(Collections.singletonList(new Room("Dermatology")));
+
+        String etag = mockMvc.perform(get("/api/rooms"))
+          .andExpect(status().isOk())
+          .andExpect(header().exists("ETag"))
+          .andReturn().getResponse().getHeader("ETag");
+
+        // Act and Assert
+        mockMvc.perform(get("/api/rooms").header("If-None-Match", etag))
+          .andExpect(status().isNotModified())
+          .andExpect(header().string("ETag", etag))
+          .andExpect(content().string(""));
+
+        verify(roomRepository, times(1)).findByRoomNameGreaterThanOrderByRoomNameAsc(eq(""), any());
+    }
+
+    @Test
+    void shouldChangeRoomsETagAfterCreatingARoom() throws Exception {
+        // Arrange
+        when(roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(eq(""), any())).thenReturn(Collections.singletonList(new Room("Dermatology")));
+
+        String etag = mockMvc.perform(get("/api/rooms"))
+          .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(post("/api/room")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new Room("Oncology"))))
+          .andExpect(status().isCreated());
+
+        // Act and Assert
+        mockMvc.perform(get("/api/rooms").header("If-None-Match", etag))
+          .andExpect(status().isOk())
+          .andExpect(header().string("ETag", not(etag)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * Exports against the real database: the response is written by the streaming body after
+ * the controller has returned.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown(){
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from room");
+    }
+
+    @Test
+    void shouldStreamAllAppointmentsWithTheirResources() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        for (int i = 0; i < 250; i++){
+            appointmentRepository.save(new Appointment(
+                    new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                    new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                    new Room("Room " + i),
+                    startsAt, startsAt.plusMinutes(30)));
+        }
+
+        MvcResult result = mockMvc.perform(get("/api/export/appointments"))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+          .andExpect(jsonPath("$.length()").value(250))
+          .andExpect(jsonPath("$[0].room.roomName").value("Room 0"))
+          .andExpect(jsonPath("$[249].doctor.firstName").value("Perla"))
+          .andExpect(jsonPath("$[249].startsAt").value("09:00 24/04/2023"));
+    }
+
+    @Test
+    void shouldStreamAnEmptyArrayForAnEmptyTable() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/export/rooms"))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(content().json("[]"));
+    }
+}
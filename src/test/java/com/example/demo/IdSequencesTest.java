@@ -0,0 +1,55 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.services.IdSequences;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import(IdSequences.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequencesTest {
+
+    @Autowired
+    IdSequences idSequences;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_move_the_sequence_past_ids_stored_before_it(){
+        long legacyId = nextDoctorId() + 500;
+        jdbcTemplate.update("insert into doctors (id, age, first_name) values (?, 24, 'Perla')", legacyId);
+        try {
+            idSequences.align();
+
+            assertThat(nextDoctorId()).isGreaterThan(legacyId);
+        } finally {
+            jdbcTemplate.update("delete from doctors where id = ?", legacyId);
+        }
+    }
+
+    @Test
+    void should_leave_a_sequence_that_is_already_ahead(){
+        // Each value reserves a block of the entities' allocationSize
+        long next = nextDoctorId() + 50;
+
+        idSequences.align();
+
+        assertThat(nextDoctorId()).isEqualTo(next);
+    }
+
+    private long nextDoctorId(){
+        return jdbcTemplate.queryForObject("select next value for doctor_seq", Long.class);
+    }
+}
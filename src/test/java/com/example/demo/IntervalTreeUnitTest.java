@@ -0,0 +1,108 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.services.IntervalTree;
+
+class IntervalTreeUnitTest {
+
+    @Test
+    void should_find_no_overlaps_in_empty_tree(){
+        IntervalTree tree = new IntervalTree();
+
+        assertThat(tree.isEmpty()).isTrue();
+        assertThat(tree.overlaps(0, 10)).isFalse();
+    }
+
+    @Test
+    void should_treat_intervals_as_half_open(){
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+
+        assertThat(tree.overlaps(0, 10)).isFalse();
+        assertThat(tree.overlaps(20, 30)).isFalse();
+        assertThat(tree.overlaps(19, 30)).isTrue();
+        assertThat(tree.overlaps(0, 11)).isTrue();
+    }
+
+    @Test
+    void should_detect_contained_and_containing_intervals(){
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+
+        assertThat(tree.overlaps(12, 18)).isTrue();
+        assertThat(tree.overlaps(5, 25)).isTrue();
+    }
+
+    @Test
+    void should_not_find_removed_interval(){
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+        tree.insert(2, 30, 40);
+
+        assertThat(tree.remove(1, 10)).isTrue();
+        assertThat(tree.remove(1, 10)).isFalse();
+
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.overlaps(10, 20)).isFalse();
+        assertThat(tree.overlaps(35, 36)).isTrue();
+    }
+
+    @Test
+    void should_report_the_same_overlaps_as_a_linear_scan(){
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+
+        for (long id = 0; id < 2000; id++){
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(500);
+            tree.insert(id, start, end);
+            intervals.add(new long[]{id, start, end});
+        }
+        for (int i = 0; i < 500; i++){
+            long[] removed = intervals.remove(random.nextInt(intervals.size()));
+            assertThat(tree.remove(removed[0], removed[1])).isTrue();
+        }
+
+        for (int i = 0; i < 200; i++){
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(500);
+
+            List<Long> expected = new ArrayList<>();
+            for (long[] interval : intervals){
+                if (interval[1] < end && start < interval[2]) expected.add(interval[0]);
+            }
+            List<Long> found = new ArrayList<>();
+            tree.forEachOverlapping(start, end, found::add);
+
+            assertThat(found).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(tree.overlaps(start, end)).isEqualTo(!expected.isEmpty());
+        }
+    }
+
+    @Test
+    void should_visit_gaps_in_time_order_until_told_to_stop(){
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+        tree.insert(2, 15, 30);
+        tree.insert(3, 32, 40);
+        tree.insert(4, 60, 70);
+
+        List<long[]> gaps = new ArrayList<>();
+        tree.forEachGap(0, 100, 5, (start, end) -> gaps.add(new long[]{start, end}));
+
+        assertThat(gaps).containsExactly(new long[]{0, 10}, new long[]{40, 60}, new long[]{70, 100});
+
+        List<long[]> first = new ArrayList<>();
+        tree.forEachGap(12, 65, 1, (start, end) -> first.add(new long[]{start, end}) && first.size() < 2);
+
+        assertThat(first).containsExactly(new long[]{30, 32}, new long[]{40, 60});
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+/**
+ * Writes and reads a page of 100 appointment time pairs with the formatter-based codec the
+ * API used before and with {@link LocalDateTimeCodec}. Not part of the test run; after
+ * {@code mvn test-compile}, run {@link #main} from the IDE or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalDateTimeCodecBenchmark {
+
+    private static final int ROWS = 100;
+
+    private ObjectMapper formatterMapper;
+    private ObjectMapper codecMapper;
+    private Times[] page;
+    private String json;
+
+    public static class Times {
+        public LocalDateTime startsAt;
+        public LocalDateTime finishesAt;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        formatterMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(LocalDateTimeCodec.FORMATTER))
+                .addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(LocalDateTimeCodec.FORMATTER)));
+        codecMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(LocalDateTime.class, new LocalDateTimeCodec.Serializer())
+                .addDeserializer(LocalDateTime.class, new LocalDateTimeCodec.Deserializer()));
+
+        page = new Times[ROWS];
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+        for (int i = 0; i < ROWS; i++){
+            page[i] = new Times();
+            page[i].startsAt = startsAt.plusMinutes(30L * i);
+            page[i].finishesAt = page[i].startsAt.plusMinutes(30);
+        }
+        json = formatterMapper.writeValueAsString(page);
+    }
+
+    @Benchmark
+    public String writeWithFormatter() throws IOException {
+        return formatterMapper.writeValueAsString(page);
+    }
+
+    @Benchmark
+    public String writeWithCodec() throws IOException {
+        return codecMapper.writeValueAsString(page);
+    }
+
+    @Benchmark
+    public Times[] readWithFormatter() throws IOException {
+        return formatterMapper.readValue(json, Times[].class);
+    }
+
+    @Benchmark
+    public Times[] readWithCodec() throws IOException {
+        return codecMapper.readValue(json, Times[].class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LocalDateTimeCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+class LocalDateTimeCodecUnitTest {
+
+    private final ObjectMapper objectMapper = objectMapper();
+
+    private static ObjectMapper objectMapper(){
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        return builder.build();
+    }
+
+    @Test
+    void should_write_and_read_like_the_formatter() throws JsonProcessingException {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++){
+            LocalDateTime value = LocalDateTime.of(1 + random.nextInt(9999), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60));
+            String json = "\"" + LocalDateTimeCodec.FORMATTER.format(value) + "\"";
+
+            assertThat(objectMapper.writeValueAsString(value)).isEqualTo(json);
+            assertThat(objectMapper.readValue(json, LocalDateTime.class)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void should_leave_text_out_of_the_fixed_shape_to_the_formatter() throws JsonProcessingException {
+        // 24:00 and the 31st of a 30-day month are resolved as the formatter does
+        assertThat(objectMapper.readValue("\"24:00 24/04/2023\"", LocalDateTime.class)).isEqualTo(LocalDateTime.of(2023, 4, 25, 0, 0));
+        assertThat(objectMapper.readValue("\"09:30 31/04/2023\"", LocalDateTime.class))
+                .isEqualTo(LocalDateTime.parse("09:30 31/04/2023", LocalDateTimeCodec.FORMATTER));
+        assertThat(objectMapper.writeValueAsString(LocalDateTime.of(12023, 4, 24, 9, 30))).isEqualTo("\"09:30 24/04/+12023\"");
+        assertThat(objectMapper.readValue("null", LocalDateTime.class)).isNull();
+
+        assertThatThrownBy(() -> objectMapper.readValue("\"9:30 24/04/2023\"", LocalDateTime.class)).isInstanceOf(InvalidFormatException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("\"09:30 24-04-2023\"", LocalDateTime.class)).isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void should_honour_another_pattern_asked_for_by_the_property() throws JsonProcessingException {
+        Stamped stamped = new Stamped();
+        stamped.at = LocalDateTime.of(2023, 4, 24, 9, 30);
+
+        String json = objectMapper.writeValueAsString(stamped);
+
+        assertThat(json).isEqualTo("{\"at\":\"2023-04-24 09:30\"}");
+        assertThat(objectMapper.readValue(json, Stamped.class).at).isEqualTo(stamped.at);
+    }
+
+    static class Stamped {
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm")
+        public LocalDateTime at;
+    }
+}
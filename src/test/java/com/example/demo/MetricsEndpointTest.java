@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Endpoint and repository timers, rejected bookings and the connection pool are scraped
+ * from /actuator/prometheus, the timers with histogram buckets.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsEndpointTest {
+
+    private static final String BOOKING = "{\"patient\": {\"firstName\": \"Jose Luis\", \"lastName\": \"Olaya\", \"age\": 37, \"email\": \"j.olaya@email.com\"},"
+            + " \"doctor\": {\"firstName\": \"Perla\", \"lastName\": \"Amalia\", \"age\": 24, \"email\": \"p.amalia@hospital.accwe\"},"
+            + " \"room\": {\"roomName\": \"Dermatology\"}, \"startsAt\": \"09:00 24/04/2023\", \"finishesAt\": \"09:30 24/04/2023\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown(){
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from room");
+    }
+
+    @Test
+    void shouldExposeTimersCountersAndPoolGauges() throws Exception {
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(BOOKING))
+          .andExpect(status().isOk());
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON).content(BOOKING))
+          .andExpect(status().isNotAcceptable());
+        mockMvc.perform(get("/api/doctors"))
+          .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+          .andExpect(status().isOk())
+          .andExpect(content().string(containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/doctors\"")))
+          .andExpect(content().string(containsString("uri=\"/api/appointment\"")))
+          .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")))
+          .andExpect(content().string(containsString("repository=\"DoctorRepository\"")))
+          .andExpect(content().string(containsString("appointments_rejected_total 1.0")))
+          .andExpect(content().string(containsString("hikaricp_connections_active{")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.demo.reactive.DoctorRecord;
+
+/**
+ * The "reactive" profile serves the same API from WebFlux and R2DBC, on an in-memory H2.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveApiTest {
+
+    private static final String BOOKING = "{\"patient\": {\"firstName\": \"Jose Luis\", \"lastName\": \"Olaya\", \"age\": 37, \"email\": \"j.olaya@email.com\"},"
+            + " \"doctor\": {\"firstName\": \"Perla\", \"lastName\": \"Amalia\", \"age\": 24, \"email\": \"p.amalia@hospital.accwe\"},"
+            + " \"room\": {\"roomName\": \"Dermatology\"}, \"startsAt\": \"09:00 24/04/2023\", \"finishesAt\": \"09:30 24/04/2023\"}";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @AfterEach
+    void tearDown(){
+        webTestClient.delete().uri("/api/appointments").exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/api/doctors").exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/api/patients").exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/api/rooms").exchange().expectStatus().isOk();
+    }
+
+    @Test
+    void shouldCreateListAndDeleteDoctors(){
+        DoctorRecord created = webTestClient.post().uri("/api/doctor").contentType(MediaType.APPLICATION_JSON)
+          .bodyValue("{\"firstName\": \"Perla\", \"lastName\": \"Amalia\", \"age\": 24, \"email\": \"p.amalia@hospital.accwe\"}")
+          .exchange()
+          .expectStatus().isCreated()
+          .expectBody(DoctorRecord.class).returnResult().getResponseBody();
+        assertThat(created.getId()).isNotNull();
+
+        webTestClient.get().uri("/api/doctors").exchange()
+          .expectStatus().isOk()
+          .expectHeader().valueMatches("ETag", ".+")
+          .expectBody().jsonPath("$[0].firstName").isEqualTo("Perla");
+
+        webTestClient.get().uri("/api/doctors/{id}", created.getId()).exchange()
+          .expectStatus().isOk()
+          .expectBody().jsonPath("$.email").isEqualTo("p.amalia@hospital.accwe");
+
+        webTestClient.delete().uri("/api/doctors/{id}", created.getId()).exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/doctors/{id}", created.getId()).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/doctors").exchange().expectStatus().isNoContent();
+    }
+
+    @Test
+    void shouldStreamDoctorsAsNdjson(){
+        for (String name : new String[] {"Perla", "Miren"}){
+            webTestClient.post().uri("/api/doctor").contentType(MediaType.APPLICATION_JSON)
+              .bodyValue("{\"firstName\": \"" + name + "\", \"lastName\": \"Amalia\", \"age\": 24, \"email\": \"p.amalia@hospital.accwe\"}")
+              .exchange().expectStatus().isCreated();
+        }
+
+        List<DoctorRecord> doctors = webTestClient.get().uri("/api/doctors").accept(MediaType.APPLICATION_NDJSON).exchange()
+          .expectStatus().isOk()
+          .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+          .returnResult(DoctorRecord.class).getResponseBody().collectList().block();
+
+        assertThat(doctors).extracting(DoctorRecord::getFirstName).containsExactly("Perla", "Miren");
+    }
+
+    @Test
+    void shouldBookAppointmentAndRejectOverlap(){
+        webTestClient.post().uri("/api/appointment").contentType(MediaType.APPLICATION_JSON).bodyValue(BOOKING).exchange()
+          .expectStatus().isOk()
+          .expectBody()
+          .jsonPath("$[0].room.roomName").isEqualTo("Dermatology")
+          .jsonPath("$[0].startsAt").isEqualTo("09:00 24/04/2023");
+
+        webTestClient.post().uri("/api/appointment").contentType(MediaType.APPLICATION_JSON).bodyValue(BOOKING).exchange()
+          .expectStatus().isEqualTo(406)
+          .expectBody().jsonPath("$.conflicts[0]").isEqualTo("ROOM");
+
+        webTestClient.get().uri("/api/appointments").exchange()
+          .expectStatus().isOk()
+          .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectAStoredDoctorBookedInAnotherRoomAtTheSameTime(){
+        DoctorRecord doctor = webTestClient.post().uri("/api/doctor").contentType(MediaType.APPLICATION_JSON)
+          .bodyValue("{\"firstName\": \"Perla\", \"lastName\": \"Amalia\", \"age\": 24, \"email\": \"p.amalia@hospital.accwe\"}")
+          .exchange()
+          .expectStatus().isCreated()
+          .expectBody(DoctorRecord.class).returnResult().getResponseBody();
+
+        for (String room : new String[] {"Dermatology", "Oncology"}){
+            webTestClient.post().uri("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+              .bodyValue("{\"doctor\": {\"id\": " + doctor.getId() + "}, \"room\": {\"roomName\": \"" + room + "\"},"
+                      + " \"startsAt\": \"09:00 24/04/2023\", \"finishesAt\": \"09:30 24/04/2023\"}")
+              .exchange()
+              .expectStatus().isEqualTo(room.equals("Dermatology") ? 200 : 406);
+        }
+    }
+
+    @Test
+    void shouldRefuseAppointmentFiltersItDoesNotServe(){
+        for (String param : new String[] {"doctorId=1", "room=Dermatology", "fields=room"}){
+            webTestClient.get().uri("/api/appointments?" + param).exchange()
+              .expectStatus().isBadRequest();
+        }
+    }
+
+    @Test
+    void shouldRejectAppointmentEndingBeforeItStarts(){
+        webTestClient.post().uri("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+          .bodyValue(BOOKING.replace("09:30", "08:30")).exchange()
+          .expectStatus().isBadRequest();
+    }
+}
@@ -63,7 +63,7 @@ class RoomJpaUnitTest {
         entityManager.persist(room1);
         entityManager.persist(room2);
 
-        Optional<Room> foundRoom= repository.findByRoomName(room2.getRoomName());
+        Optional<Room> foundRoom= repository.findById(room2.getRoomName());
         Room room = foundRoom.get();
 
         assertThat(room).isEqualTo(room2);
@@ -79,7 +79,7 @@ class RoomJpaUnitTest {
         entityManager.persist(room2);
         entityManager.persist(room3);
 
-        repository.deleteByRoomName(room2.getRoomName());
+        repository.removeById(room2.getRoomName());
 
         Iterable rooms = repository.findAll();
 
@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.FreeSlot;
+import com.example.demo.services.ResourceType;
+import com.example.demo.services.ScheduleIndex;
+
+class ScheduleIndexUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Test
+    void should_keep_at_most_the_configured_number_of_schedules(){
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findSlotsByRoomName(anyString())).thenReturn(Collections.emptyList());
+        ScheduleIndex scheduleIndex = new ScheduleIndex(appointmentRepository, 2, Duration.ofMinutes(10));
+
+        for (int pass = 0; pass < 2; pass++){
+            for (int room = 0; room < 10; room++){
+                assertThat(scheduleIndex.hasConflict(ResourceType.ROOM, "Room " + room, NINE, NINE.plusMinutes(30))).isFalse();
+            }
+        }
+
+        // Only two of the ten schedules can still be held on the second pass; the rest are read again
+        verify(appointmentRepository, atLeast(18)).findSlotsByRoomName(anyString());
+    }
+
+    @Test
+    void should_read_a_dropped_schedule_again_with_its_bookings(){
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        AppointmentRepository.Slot booked = mock(AppointmentRepository.Slot.class);
+        when(booked.getId()).thenReturn(1L);
+        when(booked.getStartsAt()).thenReturn(NINE);
+        when(booked.getFinishesAt()).thenReturn(NINE.plusMinutes(30));
+        when(appointmentRepository.findSlotsByRoomName(anyString())).thenReturn(Collections.emptyList());
+        when(appointmentRepository.findSlotsByRoomName("Dermatology")).thenReturn(Collections.singletonList(booked));
+        ScheduleIndex scheduleIndex = new ScheduleIndex(appointmentRepository, 1, Duration.ofMinutes(10));
+
+        assertThat(scheduleIndex.hasConflict(ResourceType.ROOM, "Dermatology", NINE, NINE.plusMinutes(10))).isTrue();
+        for (int room = 0; room < 5; room++){
+            scheduleIndex.hasConflict(ResourceType.ROOM, "Room " + room, NINE, NINE.plusMinutes(30));
+        }
+
+        assertThat(scheduleIndex.hasConflict(ResourceType.ROOM, "Dermatology", NINE, NINE.plusMinutes(10))).isTrue();
+    }
+
+    @Test
+    void should_see_bookings_of_other_instances_once_a_schedule_expired(){
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        AppointmentRepository.Slot booked = mock(AppointmentRepository.Slot.class);
+        when(booked.getId()).thenReturn(1L);
+        when(booked.getStartsAt()).thenReturn(NINE);
+        when(booked.getFinishesAt()).thenReturn(NINE.plusMinutes(30));
+        when(appointmentRepository.findSlotsByRoomName("Dermatology")).thenReturn(Collections.emptyList());
+        ScheduleIndex scheduleIndex = new ScheduleIndex(appointmentRepository, 10, Duration.ZERO);
+
+        assertThat(scheduleIndex.occupiedSlots("Dermatology", NINE.toLocalDate())).isZero();
+
+        // Booked through another instance: this one never hears of it
+        when(appointmentRepository.findSlotsByRoomName("Dermatology")).thenReturn(Collections.singletonList(booked));
+
+        assertThat(scheduleIndex.occupiedSlots("Dermatology", NINE.toLocalDate())).isEqualTo(6);
+        assertThat(scheduleIndex.findFreeSlots(ResourceType.ROOM, "Dermatology", NINE, NINE.plusHours(1), Duration.ofMinutes(30), 10))
+                .extracting(FreeSlot::getStartsAt).containsExactly(NINE.plusMinutes(30));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.cache.Cache;
+import javax.cache.Caching;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Every repository call here runs in its own transaction, as it does behind the controllers:
+ * a session never reads cache entries put after it started.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=true")
+class SecondLevelCacheTest {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown(){
+        statistics.setStatisticsEnabled(false);
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from room");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_load_a_doctor_again_from_the_cache_without_sql(){
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        statistics.clear();
+
+        Doctor found = doctorRepository.findById(doctor.getId()).get();
+
+        assertThat(found.getFirstName()).isEqualTo("Perla");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void should_not_serve_a_deleted_room_from_the_cache(){
+        roomRepository.save(new Room("Dermatology"));
+        assertThat(roomRepository.findById("Dermatology")).isPresent();
+        assertThat(entityManagerFactory.getCache().contains(Room.class, "Dermatology")).isTrue();
+
+        roomRepository.removeById("Dermatology");
+        statistics.clear();
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertThat(entityManager.find(Room.class, "Dermatology")).isNull();
+        } finally {
+            entityManager.close();
+        }
+        assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+    }
+
+    @Test
+    void should_keep_the_other_rooms_cached_when_one_is_deleted(){
+        roomRepository.save(new Room("Dermatology"));
+        roomRepository.save(new Room("Oncology"));
+
+        assertThat(roomRepository.removeById("Dermatology")).isEqualTo(1);
+        statistics.clear();
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertThat(entityManager.find(Room.class, "Oncology")).isNotNull();
+            assertThat(entityManager.find(Room.class, "Dermatology")).isNull();
+        } finally {
+            entityManager.close();
+        }
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_keep_the_other_doctors_cached_when_one_is_deleted(){
+        Doctor deleted = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Doctor kept = doctorRepository.save(new Doctor("Carina", "Zaray", 49, "c.zaray@hospital.accwe"));
+
+        assertThat(doctorRepository.removeById(deleted.getId())).isEqualTo(1);
+        assertThat(doctorRepository.removeById(deleted.getId())).isZero();
+        statistics.clear();
+
+        assertThat(doctorRepository.findById(kept.getId())).isPresent();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void should_bound_every_region(){
+        Cache<Object, Object> doctors = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager().getCache("doctors");
+        Cache<Object, Object> patients = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager().getCache("patients");
+
+        CaffeineConfiguration<?, ?> doctorConfig = doctors.getConfiguration(CaffeineConfiguration.class);
+        assertThat(doctorConfig.getMaximumSize()).hasValue(10_000);
+        assertThat(doctorConfig.getExpireAfterWrite()).isPresent();
+        assertThat(doctorConfig.isStatisticsEnabled()).isTrue();
+        assertThat(patients.getConfiguration(CaffeineConfiguration.class).getMaximumSize()).hasValue(50_000);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.services.SingleFlight;
+
+class SingleFlightUnitTest {
+
+    private static final int CALLERS = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_run_one_load_for_concurrent_callers_of_the_same_key() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++){
+            results.add(executor.submit(() -> flight.load(7L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "doctor 7";
+            })));
+        }
+        // Let every caller reach the flight before the load finishes
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results){
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("doctor 7");
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void should_share_the_failure_of_the_load_and_forget_it_afterwards() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> flight.load(7L, () -> {
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        Thread.sleep(100);
+        Future<String> second = executor.submit(() -> flight.load(7L, () -> "never loaded"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(flight.load(7L, () -> "doctor 7")).isEqualTo("doctor 7");
+    }
+
+    @Test
+    void should_load_different_keys_independently(){
+        SingleFlight<Long, String> flight = new SingleFlight<>();
+
+        String outer = flight.load(1L, () -> "doctor 1 with " + flight.load(2L, () -> "doctor 2"));
+
+        assertThat(outer).isEqualTo("doctor 1 with doctor 2");
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
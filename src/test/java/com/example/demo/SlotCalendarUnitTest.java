@@ -0,0 +1,77 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.services.SlotCalendar;
+
+class SlotCalendarUnitTest {
+
+    private static final long MINUTE = 60;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Test
+    void should_treat_aligned_ranges_as_half_open(){
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.mark(10 * 60 * MINUTE, 11 * 60 * MINUTE);
+
+        assertThat(calendar.isFree(9 * 60 * MINUTE, 10 * 60 * MINUTE)).isTrue();
+        assertThat(calendar.isFree(11 * 60 * MINUTE, 12 * 60 * MINUTE)).isTrue();
+        assertThat(calendar.isFree(10 * 60 * MINUTE + 55 * MINUTE, 12 * 60 * MINUTE)).isFalse();
+        assertThat(calendar.occupiedSlots(0)).isEqualTo(12);
+    }
+
+    @Test
+    void should_mark_ranges_crossing_midnight_on_both_days(){
+        SlotCalendar calendar = new SlotCalendar();
+        calendar.mark(DAY - 30 * MINUTE, DAY + 30 * MINUTE);
+
+        assertThat(calendar.occupiedSlots(0)).isEqualTo(6);
+        assertThat(calendar.occupiedSlots(1)).isEqualTo(6);
+        assertThat(calendar.isFree(DAY + 25 * MINUTE, DAY + 40 * MINUTE)).isFalse();
+
+        calendar.clear(DAY - 30 * MINUTE, DAY + 30 * MINUTE);
+
+        assertThat(calendar.occupiedSlots(0)).isZero();
+        assertThat(calendar.isFree(0, 2 * DAY)).isTrue();
+    }
+
+    @Test
+    void should_never_report_an_occupied_range_as_free(){
+        Random random = new Random(7);
+        SlotCalendar calendar = new SlotCalendar();
+        List<long[]> intervals = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++){
+            long start = random.nextInt(30 * 24 * 60) * MINUTE;
+            long end = start + (1 + random.nextInt(120)) * MINUTE;
+            calendar.mark(start, end);
+            intervals.add(new long[]{start, end});
+        }
+
+        for (int i = 0; i < 2000; i++){
+            long start = random.nextInt(30 * 24 * 60) * MINUTE;
+            long end = start + (1 + random.nextInt(120)) * MINUTE;
+
+            boolean overlapping = false;
+            for (long[] interval : intervals){
+                overlapping |= interval[0] < end && start < interval[1];
+            }
+            if (overlapping){
+                assertThat(calendar.isFree(start, end)).isFalse();
+            }
+            if (start % (5 * MINUTE) == 0 && end % (5 * MINUTE) == 0 && !overlapping){
+                boolean touchesUnaligned = false;
+                for (long[] interval : intervals){
+                    touchesUnaligned |= interval[0] < end + 5 * MINUTE && start - 5 * MINUTE < interval[1];
+                }
+                if (!touchesUnaligned) assertThat(calendar.isFree(start, end)).isTrue();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.services.ChangeStamps;
+
+/**
+ * Counts the SQL statements each read endpoint sends, so that a fetch plan that goes back
+ * to one select per associated row shows up as a failing test. Inserts are counted too, so
+ * that an id generator that reads the database once per row does as well.
+ */
+@SpringBootTest(properties = "change-stamps.ttl=1h")
+@AutoConfigureMockMvc
+class SqlStatementCountTest {
+
+    private static final int APPOINTMENTS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChangeStamps changeStamps;
+
+    private Statistics statistics;
+    private long firstId;
+
+    @BeforeEach
+    void setUp(){
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 9, 0);
+        for (int i = 0; i < APPOINTMENTS; i++){
+            Appointment appointment = appointmentRepository.save(new Appointment(
+                    new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                    new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"),
+                    new Room("Room " + i),
+                    startsAt, startsAt.plusMinutes(30)));
+            if (i == 0) firstId = appointment.getId();
+        }
+
+        // The tags are then answered from memory, as between two reads of the stamps
+        changeStamps.etag(ChangeStamps.Kind.values());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown(){
+        statistics.setStatisticsEnabled(false);
+        jdbcTemplate.update("delete from appointment");
+        jdbcTemplate.update("delete from doctors");
+        jdbcTemplate.update("delete from patient");
+        jdbcTemplate.update("delete from room");
+    }
+
+    @Test
+    void listingAppointmentsIssuesOneStatement() throws Exception {
+        mockMvc.perform(get("/api/appointments"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(APPOINTMENTS))
+          .andExpect(jsonPath("$[19].patient.firstName").value("Jose Luis"));
+
+        // The change stamps for the ETag, then one SELECT
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void gettingOneAppointmentIssuesOneStatement() throws Exception {
+        mockMvc.perform(get("/api/appointments/{id}", firstId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.room.roomName").value("Room 0"))
+          .andExpect(jsonPath("$.doctor.firstName").value("Perla"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deletingOneAppointmentIssuesThreeStatements() throws Exception {
+        mockMvc.perform(delete("/api/appointments/{id}", firstId))
+          .andExpect(status().isOk());
+
+        // The slot it booked, for the schedule index, one DELETE, then the change stamps UPDATE
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(appointmentRepository.count()).isEqualTo(APPOINTMENTS - 1);
+    }
+
+    @Test
+    void exportingAppointmentsIssuesOneStatement() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/export/appointments"))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.length()").value(APPOINTMENTS));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void listingDoctorsPatientsAndRoomsIssuesOneStatementEach() throws Exception {
+        for (String path : new String[]{"/api/doctors", "/api/patients", "/api/rooms"}){
+            statistics.clear();
+
+            mockMvc.perform(get(path))
+              .andExpect(status().isOk())
+              .andExpect(jsonPath("$.length()").value(APPOINTMENTS));
+
+            assertThat(statistics.getPrepareStatementCount()).as(path).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void creatingFiftyDoctorsReadsTheSequenceAtMostTwice(){
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 50; i++){
+            doctors.add(new Doctor("Perla", "Amalia", 24, "p.amalia" + i + "@hospital.accwe"));
+        }
+
+        doctorRepository.saveAll(doctors);
+
+        // Ids are handed out in blocks of 50: at most two sequence reads, then one insert batch
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(doctors).extracting(Doctor::getId).doesNotHaveDuplicates().doesNotContain(0L);
+    }
+}
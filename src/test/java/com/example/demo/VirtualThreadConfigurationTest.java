@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+/**
+ * With virtual-threads.enabled, the embedded Tomcat hands each request to a virtual
+ * thread. Only runs on Java 21 or later; {@link VirtualThreadConfigurationUnitTest} covers
+ * older JVMs.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "virtual-threads.enabled=true")
+@EnabledIf("virtualThreadsAvailable")
+class VirtualThreadConfigurationTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    static boolean virtualThreadsAvailable(){
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Test
+    void requestsRunOnVirtualThreads(){
+        TomcatWebServer server = (TomcatWebServer) context.getWebServer();
+        Executor executor = server.getTomcat().getConnector().getProtocolHandler().getExecutor();
+
+        assertThat(executor.getClass().getName()).isEqualTo("java.util.concurrent.ThreadPerTaskExecutor");
+        assertThat(restTemplate.getForEntity("/api/doctors", String.class).getStatusCode().is2xxSuccessful()).isTrue();
+    }
+}
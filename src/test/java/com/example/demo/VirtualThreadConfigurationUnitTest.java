@@ -0,0 +1,33 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+class VirtualThreadConfigurationUnitTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(VirtualThreadConfiguration.class);
+
+    @Test
+    void should_keep_the_worker_pool_by_default(){
+        contextRunner.run(context -> assertThat(context)
+                .hasNotFailed()
+                .doesNotHaveBean(TomcatProtocolHandlerCustomizer.class));
+    }
+
+    @Test
+    @DisabledIf("com.example.demo.VirtualThreadConfigurationTest#virtualThreadsAvailable")
+    void should_refuse_to_start_with_virtual_threads_on_a_jvm_without_them(){
+        contextRunner.withPropertyValues("virtual-threads.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasFailed();
+                    assertThat(context.getStartupFailure())
+                            .hasRootCauseInstanceOf(NoSuchMethodException.class)
+                            .hasStackTraceContaining("virtual-threads.enabled=true needs Java 21 or later");
+                });
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.repositories.DoctorRepository;
+
+/**
+ * Loads the application with a slow database, once on Tomcat's worker pool and once on
+ * virtual threads, and prints the throughput and mean latency of each. Every statement
+ * takes {@link #LATENCY} longer while its connection is held. Half of the clients page
+ * through the doctors (a query each time), the other half revalidate the same page with
+ * If-None-Match, which is answered with a 304 before any query. Both runs share the same
+ * 200 Tomcat threads and 20 connections. Not part of the test run; after
+ * {@code mvn test-compile}, run {@link #main} with the test classpath on Java 21 or later.
+ * On a machine with fewer cores than busy clients, also pass
+ * {@code -Djdk.virtualThreadScheduler.parallelism=8}: with one carrier per core, a request
+ * that holds a connection waits behind every runnable 304 for its turn to finish.
+ */
+public class VirtualThreadLoadBenchmark {
+
+    private static final Duration LATENCY = Duration.ofMillis(20);
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(15);
+
+    public static void main(String[] args) throws Exception {
+        for (boolean virtual : new boolean[] {false, true}){
+            run(virtual);
+        }
+    }
+
+    private static void run(boolean virtual) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TechhubApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(new SlowDatabase()))
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=200",
+                        "spring.datasource.hikari.maximum-pool-size=20",
+                        "spring.datasource.hikari.connection-timeout=30000",
+                        "virtual-threads.enabled=" + virtual,
+                        "logging.level.root=WARN")
+                .run();
+        try {
+            DoctorRepository doctors = context.getBean(DoctorRepository.class);
+            for (int i = 0; i < 100; i++){
+                doctors.save(new Doctor("Perla", "Amalia", 24 + i % 40, "p.amalia" + i + "@hospital.accwe"));
+            }
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            load(virtual ? "virtual threads" : "worker pool", base);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void load(String mode, String base) throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(8)).build();
+        URI page = URI.create(base + "/api/doctors?limit=20");
+        String etag = client.send(HttpRequest.newBuilder(page).build(), HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue("ETag").orElseThrow(IllegalStateException::new);
+
+        Stats queried = new Stats();
+        Stats revalidated = new Stats();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++){
+            boolean conditional = i % 2 == 1;
+            HttpRequest.Builder builder = HttpRequest.newBuilder(page).timeout(Duration.ofSeconds(10));
+            HttpRequest request = conditional ? builder.header("If-None-Match", etag).build() : builder.build();
+            Stats stats = conditional ? revalidated : queried;
+            clients.execute(() -> {
+                while (!stopped.get()){
+                    long start = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (measuring.get()){
+                            stats.record(status, System.nanoTime() - start);
+                        }
+                    } catch (Exception e){
+                        stats.errors.increment();
+                    }
+                }
+            });
+        }
+        Thread.sleep(WARMUP.toMillis());
+        measuring.set(true);
+        Thread.sleep(MEASUREMENT.toMillis());
+        measuring.set(false);
+        stopped.set(true);
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+
+        double seconds = MEASUREMENT.toMillis() / 1000.0;
+        System.out.printf("%-16s queried: %s%n", mode, queried.summary(seconds));
+        System.out.printf("%-16s revalidated: %s%n", mode, revalidated.summary(seconds));
+        System.out.printf("%-16s total: %.0f req/s%n", mode, (queried.count.sum() + revalidated.count.sum()) / seconds);
+    }
+
+    private static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(int status, long elapsed){
+            if (status >= 400){
+                failures.increment();
+                return;
+            }
+            count.increment();
+            nanos.add(elapsed);
+        }
+
+        String summary(double seconds){
+            long n = count.sum();
+            return String.format("%.0f req/s, mean %.1f ms, %d failed, %d errors",
+                    n / seconds, n == 0 ? 0 : nanos.sum() / 1e6 / n, failures.sum(), errors.sum());
+        }
+    }
+
+    /** Wraps the data source so that preparing a statement takes LATENCY more, the connection held all along. */
+    private static final class SlowDatabase implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName){
+            if (!(bean instanceof DataSource)){
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return slow(super.getConnection());
+                }
+            };
+        }
+
+        private static Connection slow(Connection connection){
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare")){
+                            Thread.sleep(LATENCY.toMillis());
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e){
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
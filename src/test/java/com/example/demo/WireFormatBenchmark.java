@@ -0,0 +1,95 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.views.AppointmentView;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Encodes and decodes a page of 100 appointments, as GET /api/appointments returns it, in
+ * JSON, CBOR and Smile, each through a mapper built the way JacksonConfiguration builds the
+ * application's. The payload size of each format is printed at setup. Not part of the test
+ * run; after {@code mvn test-compile}, run {@link #main} from the IDE or with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int ROWS = 100;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private AppointmentView[] page;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        mapper = builder.factory(factory(format)).build();
+
+        page = new AppointmentView[ROWS];
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+        for (int i = 0; i < ROWS; i++){
+            page[i] = new AppointmentView((long) i + 1,
+                    1000L + i, "Jose Luis", "Olaya", 37, "j.olaya" + i + "@email.com",
+                    (long) i % 10, "Perla", "Amalia", 24, "p.amalia@hospital.accwe",
+                    "Room " + i % 20, startsAt.plusMinutes(30L * i), startsAt.plusMinutes(30L * i + 30));
+        }
+        payload = mapper.writeValueAsBytes(page);
+        System.out.println(format + " payload: " + payload.length + " bytes for " + ROWS + " appointments");
+    }
+
+    private static JsonFactory factory(String format){
+        switch (format){
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Appointment[] decode() throws IOException {
+        return mapper.readValue(payload, Appointment[].class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WireFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
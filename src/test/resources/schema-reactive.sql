@@ -0,0 +1,48 @@
+-- The tables and sequences Hibernate creates for the servlet stack on H2
+create sequence if not exists appointment_seq start with 1 increment by 50;
+create sequence if not exists doctor_seq start with 1 increment by 50;
+create sequence if not exists patient_seq start with 1 increment by 50;
+
+create table if not exists doctors (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+);
+
+create table if not exists patient (
+    id bigint not null,
+    age integer not null,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (id)
+);
+
+create table if not exists room (
+    room_name varchar(255) not null,
+    primary key (room_name)
+);
+
+create table if not exists appointment (
+    id bigint not null,
+    finishes_at timestamp,
+    starts_at timestamp,
+    doctor_id bigint references doctors (id),
+    patient_id bigint references patient (id),
+    room_id varchar(255) references room (room_name),
+    primary key (id)
+);
+
+create table if not exists change_stamps (
+    kind varchar(255) not null,
+    version bigint not null,
+    primary key (kind)
+);
+
+create index if not exists idx_appointment_room_time on appointment (room_id, starts_at, finishes_at);
+create index if not exists idx_appointment_doctor_time on appointment (doctor_id, starts_at, finishes_at);
+create index if not exists idx_appointment_patient_time on appointment (patient_id, starts_at, finishes_at);
+create index if not exists idx_appointment_time on appointment (starts_at);